@@ -0,0 +1,50 @@
+package com.adaptris.verify;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.adaptris.verify.report.sonar.Issues;
+
+/**
+ * Parsing throughput of {@code createIssues} for different mixes of rule style, message only and junk lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CreateIssuesBenchmark {
+
+  private static final int LINES = 10_000;
+
+  // rule:message:junk weights
+  @Param({"100:0:0", "0:100:0", "0:0:100", "34:33:33", "10:10:80"})
+  public String mix;
+
+  private CreateVerifyReport createVerifyReport;
+  private CreateVerifyReport.ArgumentWrapper argumentWrapper;
+  private String report;
+
+  @Setup
+  public void setup() {
+    createVerifyReport = new CreateVerifyReport();
+    argumentWrapper = new CreateVerifyReport.ArgumentWrapper("interlokVerify", "rule",
+        "./src/main/interlok/config/adapter.xml", "report.txt", "report.json");
+    report = SyntheticReport.mix(mix, 42).lines(LINES);
+  }
+
+  @Benchmark
+  public Issues createIssues() {
+    return createVerifyReport.createIssues(argumentWrapper, report);
+  }
+}
@@ -0,0 +1,59 @@
+package com.adaptris.verify;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The full report file to JSON file conversion, as performed by {@code run}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class RunBenchmark {
+
+  @Param({"1000", "100000", "10000000"})
+  public long lines;
+
+  private CreateVerifyReport createVerifyReport;
+  private Path directory;
+  private String[] args;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    createVerifyReport = new CreateVerifyReport();
+    directory = Files.createTempDirectory(RunBenchmark.class.getSimpleName());
+    Path report = directory.resolve("report.txt");
+    SyntheticReport.mix("34:33:33", 42).write(report, lines);
+    args = new String[] {"--reportFile", report.toString(), "--outputFile", directory.resolve("out.json").toString()};
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(directory.resolve("report.txt"));
+    Files.deleteIfExists(directory.resolve("out.json"));
+    Files.deleteIfExists(directory);
+  }
+
+  @Benchmark
+  public int run() throws Exception {
+    return createVerifyReport.run(args);
+  }
+}
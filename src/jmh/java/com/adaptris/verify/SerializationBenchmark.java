@@ -0,0 +1,87 @@
+package com.adaptris.verify;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.adaptris.verify.report.sonar.Issue;
+import com.adaptris.verify.report.sonar.Issues;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Serialization of a parsed {@link Issues}, pretty printed and compact, through databind and through
+ * {@link SonarIssuesWriter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+  private static final int LINES = 10_000;
+
+  @Param({"true", "false"})
+  public boolean pretty;
+
+  private ObjectWriter writer;
+  private JsonFactory factory;
+  private Issues issues;
+
+  @Setup
+  public void setup() {
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    writer = pretty ? mapper.writerWithDefaultPrettyPrinter() : mapper.writer();
+    factory = new JsonFactory();
+    CreateVerifyReport.ArgumentWrapper argumentWrapper = new CreateVerifyReport.ArgumentWrapper("interlokVerify",
+        "rule", "./src/main/interlok/config/adapter.xml", "report.txt", "report.json");
+    issues = new CreateVerifyReport().createIssues(argumentWrapper, SyntheticReport.mix("50:50:0", 42).lines(LINES));
+  }
+
+  @Benchmark
+  public long serialize() throws IOException {
+    CountingOutputStream out = new CountingOutputStream();
+    writer.writeValue(out, issues);
+    return out.count;
+  }
+
+  @Benchmark
+  public long serializeDirect() throws IOException {
+    CountingOutputStream out = new CountingOutputStream();
+    try (SonarIssuesWriter issuesWriter = new SonarIssuesWriter(factory, out, pretty, false)) {
+      for (Issue issue : issues.getIssues()) {
+        issuesWriter.write(issue);
+      }
+    }
+    return out.count;
+  }
+
+  private static class CountingOutputStream extends OutputStream {
+    private long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package com.adaptris.verify;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import com.adaptris.verify.report.sonar.Issue;
+import com.adaptris.verify.report.sonar.Location;
+import com.adaptris.verify.report.sonar.Severity;
+import com.adaptris.verify.report.sonar.Type;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Collapses repeated issues into one, with the number of occurrences appended to its message, e.g.
+ * {@code ... is deprecated (1200 occurrences)}.
+ * <p>
+ * Issues are the same if they have the same rule id, severity, type, message and file path; the numbered rule ids
+ * given to message only lines are ignored, as they are for a baseline. Each distinct issue keeps the rule id of its
+ * first occurrence, and they are written in the order they first occurred when the sink is closed, so memory grows
+ * with the number of distinct issues rather than the number of lines.
+ * </p>
+ */
+class AggregatingIssueSink implements IssueSink {
+
+  private final IssueSink delegate;
+  private final String ruleIdPrefix;
+  private final Integer effortMinutes;
+  private final Map<Key, Aggregate> aggregates = new LinkedHashMap<>();
+
+  /**
+   * @param effortMinutes the effort to fix each occurrence, or null; the effort for a distinct issue is this
+   *          multiplied by the number of occurrences.
+   */
+  AggregatingIssueSink(IssueSink delegate, String ruleIdPrefix, Integer effortMinutes) {
+    this.delegate = delegate;
+    this.ruleIdPrefix = ruleIdPrefix;
+    this.effortMinutes = effortMinutes;
+  }
+
+  @Override
+  public void write(Issue issue) {
+    aggregates.computeIfAbsent(key(issue), k -> new Aggregate(issue, 0)).occurrences++;
+  }
+
+  @Override
+  public boolean isComplete() {
+    return delegate.isComplete();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try (IssueSink sink = delegate) {
+      for (Aggregate aggregate : aggregates.values()) {
+        sink.write(aggregate.toIssue());
+      }
+    } finally {
+      aggregates.clear();
+    }
+  }
+
+  private Key key(Issue issue) {
+    String ruleId = issue.getRuleId();
+    Location location = issue.getPrimaryLocation();
+    return new Key(ruleId != null && !BaselineIndex.isPositional(ruleId, ruleIdPrefix) ? ruleId : null,
+        issue.getSeverity(), issue.getType(), location != null ? location.getMessage() : null,
+        location != null ? location.getFilePath() : null);
+  }
+
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  private static class Key {
+    private final String ruleId;
+    private final Severity severity;
+    private final Type type;
+    private final String message;
+    private final String filePath;
+  }
+
+  @AllArgsConstructor
+  private class Aggregate {
+    private final Issue first;
+    private int occurrences;
+
+    Issue toIssue() {
+      Location location = first.getPrimaryLocation();
+      if (occurrences > 1 && location != null && location.getMessage() != null) {
+        location = new Location(String.format("%s (%d occurrences)", location.getMessage(), occurrences),
+            location.getFilePath(), location.getTextRange());
+      }
+      Integer effort = first.getEffortMinutes();
+      if (effortMinutes != null) {
+        effort = effortMinutes * occurrences;
+      }
+      return new Issue(first.getEngineId(), first.getRuleId(), first.getSeverity(), first.getType(), location, effort);
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package com.adaptris.verify;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Finds which of a fixed set of substrings occur in a text, in a single pass over the text however many there are.
+ * <p>
+ * Each state keeps the lowest index of any substring that ends there (including through its failure links), so a
+ * search only needs to track the lowest index seen. Transitions are stored as sorted {@code char} arrays and found by
+ * binary search, which keeps the automaton small when the alphabet is all of UTF-16.
+ * </p>
+ */
+class AhoCorasickMatcher {
+
+  static final int NO_MATCH = Integer.MAX_VALUE;
+
+  private final char[][] keys;
+  private final int[][] targets;
+  private final int[] failure;
+  private final int[] lowestMatch;
+
+  /**
+   * @param substrings the substrings to look for; the result of {@link #lowestMatch(CharSequence)} is an index into
+   *          this list. Empty substrings are ignored.
+   */
+  AhoCorasickMatcher(List<String> substrings) {
+    List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+    List<Integer> outputs = new ArrayList<>();
+    trie.add(new TreeMap<>());
+    outputs.add(NO_MATCH);
+    for (int i = 0; i < substrings.size(); i++) {
+      String substring = substrings.get(i);
+      if (substring.isEmpty()) {
+        continue;
+      }
+      int state = 0;
+      for (int c = 0; c < substring.length(); c++) {
+        Integer next = trie.get(state).get(substring.charAt(c));
+        if (next == null) {
+          next = trie.size();
+          trie.get(state).put(substring.charAt(c), next);
+          trie.add(new TreeMap<>());
+          outputs.add(NO_MATCH);
+        }
+        state = next;
+      }
+      outputs.set(state, Math.min(outputs.get(state), i));
+    }
+    int states = trie.size();
+    keys = new char[states][];
+    targets = new int[states][];
+    failure = new int[states];
+    lowestMatch = new int[states];
+    for (int state = 0; state < states; state++) {
+      TreeMap<Character, Integer> transitions = trie.get(state);
+      keys[state] = new char[transitions.size()];
+      targets[state] = new int[transitions.size()];
+      int t = 0;
+      for (Map.Entry<Character, Integer> transition : transitions.entrySet()) {
+        keys[state][t] = transition.getKey();
+        targets[state][t++] = transition.getValue();
+      }
+      lowestMatch[state] = outputs.get(state);
+    }
+    // Breadth first, so that a state's failure target is always finished before the state itself.
+    Deque<Integer> queue = new ArrayDeque<>();
+    for (int child : targets[0]) {
+      failure[child] = 0;
+      queue.add(child);
+    }
+    while (!queue.isEmpty()) {
+      int state = queue.poll();
+      for (int t = 0; t < keys[state].length; t++) {
+        int child = targets[state][t];
+        int fallback = failure[state];
+        int next;
+        while ((next = transition(fallback, keys[state][t])) < 0 && fallback != 0) {
+          fallback = failure[fallback];
+        }
+        failure[child] = next >= 0 && next != child ? next : 0;
+        lowestMatch[child] = Math.min(lowestMatch[child], lowestMatch[failure[child]]);
+        queue.add(child);
+      }
+    }
+  }
+
+  /**
+   * @return the lowest index of the substrings that occur in the text, or {@link #NO_MATCH}.
+   */
+  int lowestMatch(CharSequence text) {
+    int lowest = NO_MATCH;
+    int state = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      int next;
+      while ((next = transition(state, c)) < 0 && state != 0) {
+        state = failure[state];
+      }
+      state = next >= 0 ? next : 0;
+      if (lowestMatch[state] < lowest) {
+        lowest = lowestMatch[state];
+        if (lowest == 0) {
+          break;
+        }
+      }
+    }
+    return lowest;
+  }
+
+  private int transition(int state, char c) {
+    int t = Arrays.binarySearch(keys[state], c);
+    return t >= 0 ? targets[state][t] : -1;
+  }
+
+  int states() {
+    return keys.length;
+  }
+}
@@ -0,0 +1,198 @@
+package com.adaptris.verify;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import com.adaptris.verify.report.sonar.Issue;
+import com.adaptris.verify.report.sonar.Location;
+
+/**
+ * A set of issue fingerprints saved by an earlier run, so that only new issues need to be reported.
+ * <p>
+ * The file is a 16 byte header (magic, version, capacity and size as big endian ints) followed by an open addressing
+ * hash table of {@code capacity} 64 bit fingerprints, with 0 marking an empty slot. The table is at most half full,
+ * so it is memory mapped as it is and each lookup is a hash and, on average, one or two probes.
+ * </p>
+ * <p>
+ * A fingerprint covers the rule id, severity, type and message. Rule ids made from {@code ruleIdPrefix} and the line
+ * number are left out, since they change whenever a line is added above the issue.
+ * </p>
+ */
+class BaselineIndex {
+
+  static final int MAGIC = 0x49565242;
+  static final int VERSION = 1;
+  private static final int HEADER_SIZE = 16;
+  private static final int MIN_CAPACITY = 16;
+
+  private final LongBuffer table;
+  private final int mask;
+  private final int size;
+
+  private BaselineIndex(LongBuffer table, int size) {
+    this.table = table;
+    this.mask = table.capacity() - 1;
+    this.size = size;
+  }
+
+  static BaselineIndex load(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (mapped.remaining() < HEADER_SIZE || mapped.getInt(0) != MAGIC) {
+        throw new IOException(file + " is not a baseline file");
+      }
+      if (mapped.getInt(4) != VERSION) {
+        throw new IOException(String.format("%s is a version %d baseline, expected %d", file, mapped.getInt(4), VERSION));
+      }
+      int capacity = mapped.getInt(8);
+      if (Integer.bitCount(capacity) != 1 || mapped.remaining() != HEADER_SIZE + (long) capacity * Long.BYTES) {
+        throw new IOException(file + " is not a complete baseline file");
+      }
+      int size = mapped.getInt(12);
+      // A full table would have no empty slot to end a lookup that misses.
+      if (size < 0 || size >= capacity) {
+        throw new IOException(String.format("%s has %d fingerprints in %d slots", file, size, capacity));
+      }
+      mapped.position(HEADER_SIZE);
+      return new BaselineIndex(mapped.slice().asLongBuffer(), size);
+    }
+  }
+
+  boolean contains(long fingerprint) {
+    long key = nonZero(fingerprint);
+    // Bounded as well, in case the file claims a size smaller than the slots it has filled.
+    int slot = (int) key & mask;
+    for (int probes = 0; probes <= mask; probes++, slot = (slot + 1) & mask) {
+      long stored = table.get(slot);
+      if (stored == key) {
+        return true;
+      }
+      if (stored == 0) {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Write the fingerprints (duplicates are fine) as a baseline file, replacing any existing file in one step.
+   */
+  private static void write(Path file, long[] fingerprints, int count) throws IOException {
+    long[] keys = Arrays.copyOf(fingerprints, count);
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = nonZero(keys[i]);
+    }
+    Arrays.sort(keys);
+    int capacity = MIN_CAPACITY;
+    while (capacity < keys.length * 2) {
+      capacity <<= 1;
+    }
+    long[] table = new long[capacity];
+    int size = 0;
+    for (int i = 0; i < keys.length; i++) {
+      if (i > 0 && keys[i] == keys[i - 1]) {
+        continue;
+      }
+      int slot = (int) keys[i] & (capacity - 1);
+      while (table[slot] != 0) {
+        slot = (slot + 1) & (capacity - 1);
+      }
+      table[slot] = keys[i];
+      size++;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + capacity * Long.BYTES);
+    buffer.putInt(MAGIC).putInt(VERSION).putInt(capacity).putInt(size);
+    buffer.asLongBuffer().put(table);
+    Path absolute = file.toAbsolutePath();
+    Path temp = absolute.resolveSibling("." + absolute.getFileName() + ".tmp");
+    Files.write(temp, buffer.array());
+    try {
+      Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  static long fingerprint(Issue issue, String ruleIdPrefix) {
+    long hash = 0xcbf29ce484222325L;
+    String ruleId = issue.getRuleId();
+    if (ruleId != null && !isPositional(ruleId, ruleIdPrefix)) {
+      hash = hash(hash, ruleId);
+    }
+    hash = hash(hash, issue.getSeverity() != null ? issue.getSeverity().name() : "");
+    hash = hash(hash, issue.getType() != null ? issue.getType().name() : "");
+    Location location = issue.getPrimaryLocation();
+    hash = hash(hash, location != null && location.getMessage() != null ? location.getMessage() : "");
+    return mix(hash);
+  }
+
+  static boolean isPositional(String ruleId, String ruleIdPrefix) {
+    if (!ruleId.startsWith(ruleIdPrefix) || ruleId.length() == ruleIdPrefix.length()) {
+      return false;
+    }
+    for (int i = ruleIdPrefix.length(); i < ruleId.length(); i++) {
+      if (ruleId.charAt(i) < '0' || ruleId.charAt(i) > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // FNV-1a over the chars, with a separator so that "ab","c" and "a","bc" differ.
+  private static long hash(long hash, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+    }
+    return (hash ^ 0xFFFF) * 0x100000001b3L;
+  }
+
+  // The murmur3 finalizer, so that the low bits used for the slot are well distributed.
+  private static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  private static long nonZero(long fingerprint) {
+    return fingerprint == 0 ? 1 : fingerprint;
+  }
+
+  /**
+   * Collects the fingerprints of the issues in a run, to be written as the next baseline once the run has finished.
+   */
+  static class Builder {
+
+    private final String ruleIdPrefix;
+    private long[] fingerprints = new long[1024];
+    private int count;
+
+    Builder(String ruleIdPrefix) {
+      this.ruleIdPrefix = ruleIdPrefix;
+    }
+
+    synchronized void add(Issue issue) {
+      if (count == fingerprints.length) {
+        fingerprints = Arrays.copyOf(fingerprints, count * 2);
+      }
+      fingerprints[count++] = fingerprint(issue, ruleIdPrefix);
+    }
+
+    synchronized void write(Path file) throws IOException {
+      BaselineIndex.write(file, fingerprints, count);
+    }
+  }
+}
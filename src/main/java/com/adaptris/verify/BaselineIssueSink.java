@@ -0,0 +1,37 @@
+package com.adaptris.verify;
+
+import java.io.IOException;
+import com.adaptris.verify.report.sonar.Issue;
+
+/**
+ * Passes on only the issues that are not in a baseline.
+ */
+class BaselineIssueSink implements IssueSink {
+
+  private final IssueSink delegate;
+  private final String ruleIdPrefix;
+  private final BaselineIndex baseline;
+
+  BaselineIssueSink(IssueSink delegate, String ruleIdPrefix, BaselineIndex baseline) {
+    this.delegate = delegate;
+    this.ruleIdPrefix = ruleIdPrefix;
+    this.baseline = baseline;
+  }
+
+  @Override
+  public void write(Issue issue) throws IOException {
+    if (!baseline.contains(BaselineIndex.fingerprint(issue, ruleIdPrefix))) {
+      delegate.write(issue);
+    }
+  }
+
+  @Override
+  public boolean isComplete() {
+    return delegate.isComplete();
+  }
+
+  @Override
+  public void close() throws IOException {
+    delegate.close();
+  }
+}
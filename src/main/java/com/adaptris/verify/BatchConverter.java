@@ -0,0 +1,184 @@
+package com.adaptris.verify;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import com.adaptris.verify.CreateVerifyReport.ArgumentWrapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Converts many reports concurrently in a single JVM, sharing one {@link CreateVerifyReport}.
+ * <p>
+ * A failure converting one report is recorded against that report and does not stop the others.
+ * </p>
+ */
+class BatchConverter {
+
+  private static final String MANIFEST_COMMENT = "#";
+  private static final String MANIFEST_SEPARATOR = ",";
+  private static final String GLOB_OUTPUT_EXTENSION = ".json";
+  // For reports that already have the output extension, which would otherwise be overwritten by their own output.
+  private static final String GLOB_OUTPUT_JSON_EXTENSION = ".sonar.json";
+
+  private final CreateVerifyReport report;
+  private final int threads;
+
+  BatchConverter(CreateVerifyReport report, int threads) {
+    this.report = report;
+    this.threads = Math.max(1, threads);
+  }
+
+  /**
+   * Read a manifest; each line is {@code reportFile,outputFile[,locationFilePath]}, blank lines and lines starting
+   * with {@code #} are ignored.
+   */
+  static List<ArgumentWrapper> readManifest(Path manifest, ArgumentWrapper defaults) throws IOException {
+    List<ArgumentWrapper> jobs = new ArrayList<>();
+    try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+      String line;
+      int lineNumber = 0;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith(MANIFEST_COMMENT)) {
+          continue;
+        }
+        String[] fields = trimmed.split(MANIFEST_SEPARATOR);
+        if (fields.length < 2 || fields.length > 3) {
+          throw new IOException(String.format("%s:%d: expected reportFile,outputFile[,locationFilePath]",
+              manifest, lineNumber));
+        }
+        jobs.add(defaults.forFiles(fields[0].trim(), fields[1].trim(),
+            fields.length == 3 ? fields[2].trim() : defaults.getLocationFilePath()));
+      }
+    }
+    return jobs;
+  }
+
+  /**
+   * Find every report matching a glob; each output is written next to its report with a {@code .json} extension, or
+   * {@code .sonar.json} if the report is itself a {@code .json} file.
+   */
+  static List<ArgumentWrapper> expandGlob(String glob, ArgumentWrapper defaults) throws IOException {
+    Path base = globBase(glob);
+    PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+    if (!Files.isDirectory(base)) {
+      return new ArrayList<>();
+    }
+    try (Stream<Path> paths = Files.walk(base)) {
+      return paths.filter(Files::isRegularFile).filter(matcher::matches).sorted()
+          .map(p -> defaults.forFiles(p.toString(), outputFor(p).toString(), defaults.getLocationFilePath()))
+          .collect(Collectors.toList());
+    }
+  }
+
+  // The longest leading part of the glob without any glob syntax, which is where the walk needs to start.
+  private static Path globBase(String glob) {
+    String separators = glob.replace('\\', '/');
+    int wildcard = -1;
+    for (int i = 0; i < separators.length() && wildcard < 0; i++) {
+      if ("*?[{".indexOf(separators.charAt(i)) >= 0) {
+        wildcard = i;
+      }
+    }
+    if (wildcard < 0) {
+      Path parent = Paths.get(glob).getParent();
+      return parent != null ? parent : Paths.get("");
+    }
+    int lastSeparator = separators.lastIndexOf('/', wildcard);
+    return lastSeparator < 0 ? Paths.get("") : Paths.get(glob.substring(0, lastSeparator == 0 ? 1 : lastSeparator));
+  }
+
+  static Path outputFor(Path report) {
+    String name = report.getFileName().toString();
+    int dot = name.lastIndexOf('.');
+    String extension = name.substring(dot + 1).equalsIgnoreCase(GLOB_OUTPUT_EXTENSION.substring(1))
+        ? GLOB_OUTPUT_JSON_EXTENSION
+        : GLOB_OUTPUT_EXTENSION;
+    return report.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + extension);
+  }
+
+  List<Result> convert(List<ArgumentWrapper> jobs) {
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, jobs.size())));
+    try {
+      List<Future<?>> futures = new ArrayList<>(jobs.size());
+      for (ArgumentWrapper job : jobs) {
+        futures.add(executor.submit(() -> {
+          report.convert(job);
+          return null;
+        }));
+      }
+      List<Result> results = new ArrayList<>(jobs.size());
+      for (int i = 0; i < jobs.size(); i++) {
+        results.add(new Result(jobs.get(i), failure(futures.get(i))));
+      }
+      return results;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Throwable failure(Future<?> future) {
+    try {
+      future.get();
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return e;
+    } catch (ExecutionException e) {
+      return e.getCause();
+    }
+  }
+
+  /**
+   * @return the exit code: 0 if every report converted, {@link CreateVerifyReport#QUALITY_GATE_FAILED} if the only
+   *         failures were quality gates, otherwise 1.
+   */
+  static int report(List<Result> results, PrintStream out, PrintStream err) {
+    long failed = 0;
+    boolean onlyGates = true;
+    for (Result result : results) {
+      if (result.isSuccess()) {
+        out.println(String.format("OK     %s -> %s", result.getJob().getReportFile(), result.getJob().getOutputFile()));
+      } else {
+        failed++;
+        onlyGates &= result.getFailure() instanceof QualityGate.FailedException;
+        err.println(String.format("FAILED %s: %s", result.getJob().getReportFile(), result.getFailure()));
+      }
+    }
+    out.println(String.format("Converted %d of %d reports", results.size() - failed, results.size()));
+    if (failed == 0) {
+      return 0;
+    }
+    return onlyGates ? CreateVerifyReport.QUALITY_GATE_FAILED : 1;
+  }
+
+  @AllArgsConstructor
+  static class Result {
+
+    @Getter
+    private final ArgumentWrapper job;
+
+    @Getter
+    private final Throwable failure;
+
+    boolean isSuccess() {
+      return failure == null;
+    }
+  }
+}
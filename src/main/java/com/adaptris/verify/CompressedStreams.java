@@ -0,0 +1,95 @@
+package com.adaptris.verify;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Reads gzip and zip compressed reports as they are read, recognising them by their magic bytes rather than their
+ * name; and gzips outputs whose name ends in {@code .gz}.
+ * <p>
+ * A zip is read from its first file entry; any other entries are ignored.
+ * </p>
+ */
+final class CompressedStreams {
+
+  static final String GZIP_EXTENSION = ".gz";
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final byte[] GZIP_MAGIC = {0x1f, (byte) 0x8b};
+  private static final byte[] ZIP_MAGIC = {'P', 'K', 3, 4};
+
+  private CompressedStreams() {
+  }
+
+  /**
+   * @return the decompressed content of the stream, or the stream itself if it is not compressed.
+   */
+  static InputStream decompress(InputStream in) throws IOException {
+    InputStream buffered = in.markSupported() ? in : new BufferedInputStream(in, BUFFER_SIZE);
+    byte[] magic = peek(buffered, ZIP_MAGIC.length);
+    if (startsWith(magic, GZIP_MAGIC)) {
+      return new GZIPInputStream(buffered, BUFFER_SIZE);
+    }
+    if (startsWith(magic, ZIP_MAGIC)) {
+      ZipInputStream zip = new ZipInputStream(buffered);
+      ZipEntry entry;
+      while ((entry = zip.getNextEntry()) != null && entry.isDirectory()) {
+        zip.closeEntry();
+      }
+      return zip;
+    }
+    return buffered;
+  }
+
+  /**
+   * Whether a file is gzip or zip compressed, and so can not be memory mapped or followed.
+   */
+  static boolean isCompressed(Path file) throws IOException {
+    try (InputStream in = Files.newInputStream(file)) {
+      byte[] magic = peek(new BufferedInputStream(in, ZIP_MAGIC.length), ZIP_MAGIC.length);
+      return startsWith(magic, GZIP_MAGIC) || startsWith(magic, ZIP_MAGIC);
+    }
+  }
+
+  static boolean isGzipName(String file) {
+    return file.endsWith(GZIP_EXTENSION);
+  }
+
+  static OutputStream compress(OutputStream out) throws IOException {
+    return new GZIPOutputStream(out, BUFFER_SIZE);
+  }
+
+  // Read up to length bytes without consuming them; fewer if the stream ends first.
+  private static byte[] peek(InputStream in, int length) throws IOException {
+    in.mark(length);
+    byte[] bytes = new byte[length];
+    int read = 0;
+    int n;
+    while (read < length && (n = in.read(bytes, read, length - read)) >= 0) {
+      read += n;
+    }
+    in.reset();
+    return read == length ? bytes : Arrays.copyOf(bytes, read);
+  }
+
+  private static boolean startsWith(byte[] bytes, byte[] prefix) {
+    if (bytes.length < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (bytes[i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,247 @@
+package com.adaptris.verify;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import com.adaptris.verify.CreateVerifyReport.ArgumentWrapper;
+import com.fasterxml.jackson.core.JsonFactory;
+
+/**
+ * Keeps a warmed up {@link CreateVerifyReport} resident, converting reports for {@link DaemonClient}s so that a build
+ * step does not pay for starting and warming a JVM every time.
+ * <p>
+ * The daemon listens on a loopback port and records the port, and a random token that every request must carry, in a
+ * registry file that only its owner can read. A request is UTF-8 lines: the token, which the daemon acknowledges with
+ * a {@code READY} line, then the command and {@code name=value} fields ending with an empty line; the reply is a single
+ * {@code OK} or {@code ERROR message} line. Requests are served concurrently.
+ * </p>
+ */
+class ConversionDaemon {
+
+  static final String REGISTRY_FILE = "daemon.properties";
+
+  static final String CONVERT = "convert";
+  static final String STOP = "stop";
+  static final String READY = "READY";
+  static final String OK = "OK";
+  static final String ERROR = "ERROR ";
+
+  static final String PORT = "port";
+  static final String TOKEN = "token";
+  static final String REPORT_FILE = "reportFile";
+  static final String OUTPUT_FILE = "outputFile";
+  static final String ENGINE_ID = "engineId";
+  static final String RULE_ID_PREFIX = "ruleIdPrefix";
+  static final String LOCATION_FILE_PATH = "locationFilePath";
+  static final String COMPACT = "compact";
+  static final String PARALLELISM = "parallelism";
+
+  // For reading a request; the conversion itself can take as long as it needs.
+  static final int REQUEST_TIMEOUT_MILLIS = 10_000;
+
+  private static final int WARM_UP_LINES = 20_000;
+  private static final int WARM_UP_ROUNDS = 5;
+
+  private final CreateVerifyReport report;
+  private final Path registry;
+  private final int threads;
+  private final String token;
+  private ServerSocketChannel server;
+
+  ConversionDaemon(CreateVerifyReport report, Path directory, int threads) {
+    this.report = report;
+    this.registry = directory.resolve(REGISTRY_FILE);
+    this.threads = Math.max(1, threads);
+    byte[] random = new byte[24];
+    new SecureRandom().nextBytes(random);
+    StringBuilder hex = new StringBuilder();
+    for (byte b : random) {
+      hex.append(String.format("%02x", b));
+    }
+    token = hex.toString();
+  }
+
+  /**
+   * Run the classifier and the sonar writer over a made up report, so that the first real request is already served
+   * by compiled code.
+   */
+  void warmUp() throws IOException {
+    StringBuilder lines = new StringBuilder();
+    for (int i = 0; i < WARM_UP_LINES; i++) {
+      lines.append(i % 2 == 0 ? "CODE_SMELL,MAJOR,Interlok Validation Error:service-" : "BUG,INFO,[Service(service-")
+          .append(i).append(i % 2 == 0 ? "\n" : ")] is deprecated\n");
+    }
+    ArgumentWrapper argumentWrapper = new ArgumentWrapper(CreateVerifyReport.ENGINE_ID_DEFAULT,
+        CreateVerifyReport.RULE_ID_PREFIX_DEFAULT, CreateVerifyReport.LOCATION_FILE_PATH_DEFAULT, null, null);
+    JsonFactory factory = new JsonFactory();
+    for (int round = 0; round < WARM_UP_ROUNDS; round++) {
+      try (ReportLineReader reader = new ReportLineReader(new StringReader(lines.toString()));
+          SonarIssuesWriter writer = new SonarIssuesWriter(factory, OutputStream.nullOutputStream())) {
+        report.createIssues(report.createClassifier(argumentWrapper, false), reader, writer::write);
+      }
+    }
+  }
+
+  /**
+   * Listen and register; returns the port.
+   */
+  synchronized int start() throws IOException {
+    server = ServerSocketChannel.open();
+    server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    int port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+    try {
+      writeRegistry(port);
+    } catch (IOException e) {
+      server.close();
+      throw e;
+    }
+    return port;
+  }
+
+  /**
+   * Serve requests until a stop request arrives (or {@link #stop()} is called), then wait for the conversions in
+   * progress and remove the registry.
+   */
+  void serve() throws IOException {
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      while (true) {
+        SocketChannel client;
+        try {
+          client = server.accept();
+        } catch (ClosedChannelException e) {
+          break;
+        }
+        pool.execute(() -> handle(client));
+      }
+    } finally {
+      pool.shutdown();
+      try {
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      Files.deleteIfExists(registry);
+    }
+  }
+
+  synchronized void stop() throws IOException {
+    if (server != null) {
+      server.close();
+    }
+  }
+
+  private void handle(SocketChannel client) {
+    try (SocketChannel channel = client) {
+      // The socket streams rather than the channel's, so that reads honour the timeout.
+      channel.socket().setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+      BufferedReader in = new BufferedReader(new InputStreamReader(channel.socket().getInputStream(),
+          StandardCharsets.UTF_8));
+      Writer out = new OutputStreamWriter(channel.socket().getOutputStream(), StandardCharsets.UTF_8);
+      String reply;
+      try {
+        reply = execute(in, out);
+      } catch (IOException | RuntimeException e) {
+        reply = ERROR + e;
+      }
+      writeLine(out, reply.replace('\n', ' ').replace('\r', ' '));
+    } catch (IOException e) {
+      // The client has gone, there is no one left to tell.
+    }
+  }
+
+  private String execute(BufferedReader in, Writer out) throws IOException {
+    if (!token.equals(in.readLine())) {
+      return ERROR + "invalid token";
+    }
+    // A client that gave up waiting for this has closed the connection, so it reads no command and runs nothing.
+    writeLine(out, READY);
+    String command = in.readLine();
+    Map<String, String> fields = readFields(in);
+    if (STOP.equals(command)) {
+      stop();
+      return OK;
+    }
+    if (!CONVERT.equals(command)) {
+      return ERROR + "unknown command " + command;
+    }
+    ArgumentWrapper argumentWrapper = new ArgumentWrapper(required(fields, ENGINE_ID), required(fields, RULE_ID_PREFIX),
+        required(fields, LOCATION_FILE_PATH), required(fields, REPORT_FILE), required(fields, OUTPUT_FILE));
+    argumentWrapper.setCompact(Boolean.parseBoolean(fields.get(COMPACT)));
+    argumentWrapper.setParallelism(Integer.parseInt(fields.getOrDefault(PARALLELISM, "0")));
+    report.convert(argumentWrapper);
+    return OK;
+  }
+
+  private static void writeLine(Writer out, String line) throws IOException {
+    out.write(line);
+    out.write('\n');
+    out.flush();
+  }
+
+  static Map<String, String> readFields(BufferedReader in) throws IOException {
+    Map<String, String> fields = new LinkedHashMap<>();
+    String line;
+    while ((line = in.readLine()) != null && !line.isEmpty()) {
+      int equals = line.indexOf('=');
+      if (equals > 0) {
+        fields.put(line.substring(0, equals), line.substring(equals + 1));
+      }
+    }
+    return fields;
+  }
+
+  private static String required(Map<String, String> fields, String name) throws IOException {
+    String value = fields.get(name);
+    if (value == null) {
+      throw new IOException("missing " + name);
+    }
+    return value;
+  }
+
+  // Written to one side and moved into place, so that a client never reads half a registry.
+  private void writeRegistry(int port) throws IOException {
+    Files.createDirectories(registry.getParent());
+    Path temp = registry.resolveSibling("." + REGISTRY_FILE + ".tmp");
+    Files.deleteIfExists(temp);
+    Files.createFile(temp);
+    try {
+      Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-------"));
+    } catch (UnsupportedOperationException e) {
+      // Not a POSIX file system; the file has the directory's default permissions.
+    }
+    Properties properties = new Properties();
+    properties.setProperty(PORT, Integer.toString(port));
+    properties.setProperty(TOKEN, token);
+    try (OutputStream out = Files.newOutputStream(temp)) {
+      properties.store(out, "interlok-verify-report daemon");
+    }
+    try {
+      Files.move(temp, registry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, registry, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
@@ -0,0 +1,238 @@
+package com.adaptris.verify;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import com.adaptris.verify.report.sonar.Issue;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+
+/**
+ * Timings and counters for a single conversion, written out as a JSON summary by {@code --stats}.
+ * <p>
+ * Reading, classifying and writing are interleaved as the report is streamed, so each phase is the total time spent
+ * in it rather than a wall clock interval; in parallel mode reading and classifying are summed across threads and can
+ * add up to more than the wall time. Everything is safe to update from several threads.
+ * </p>
+ * <p>
+ * The peak heap comes from the JVM's memory pools, which only know the peak of the whole process, so it is only
+ * measured for a conversion that has the JVM to itself; batch conversions run side by side and leave it out.
+ * </p>
+ */
+class ConversionStats {
+
+  enum Phase {
+    SETUP, READ, CLASSIFY, WRITE
+  }
+
+  private final String reportFile;
+  private final boolean measurePeakHeap;
+  private final long start = System.nanoTime();
+  private long wallNanos;
+  private final Map<Phase, LongAdder> phases = new EnumMap<>(Phase.class);
+  private final LongAdder linesRead = new LongAdder();
+  private final LongAdder ruleLines = new LongAdder();
+  private final LongAdder messageLines = new LongAdder();
+  private final LongAdder droppedLines = new LongAdder();
+  private final LongAdder issuesWritten = new LongAdder();
+  private final LongAdder bytesIn = new LongAdder();
+  private final LongAdder bytesOut = new LongAdder();
+
+  /**
+   * @param measurePeakHeap whether this is the only conversion in the JVM, so that the peak heap is its own.
+   */
+  ConversionStats(String reportFile, boolean measurePeakHeap) {
+    this.reportFile = reportFile;
+    this.measurePeakHeap = measurePeakHeap;
+    for (Phase phase : Phase.values()) {
+      phases.put(phase, new LongAdder());
+    }
+    if (measurePeakHeap) {
+      for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+        if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+          pool.resetPeakUsage();
+        }
+      }
+    }
+  }
+
+  void time(Phase phase, long nanos) {
+    phases.get(phase).add(nanos);
+  }
+
+  void lineRead() {
+    linesRead.increment();
+  }
+
+  void ruleLine() {
+    ruleLines.increment();
+  }
+
+  void messageLine() {
+    messageLines.increment();
+  }
+
+  void droppedLine() {
+    droppedLines.increment();
+  }
+
+  void bytesIn(long bytes) {
+    bytesIn.add(bytes);
+  }
+
+  long getLinesRead() {
+    return linesRead.sum();
+  }
+
+  long getRuleLines() {
+    return ruleLines.sum();
+  }
+
+  long getMessageLines() {
+    return messageLines.sum();
+  }
+
+  long getDroppedLines() {
+    return droppedLines.sum();
+  }
+
+  long getIssuesWritten() {
+    return issuesWritten.sum();
+  }
+
+  long getBytesIn() {
+    return bytesIn.sum();
+  }
+
+  long getBytesOut() {
+    return bytesOut.sum();
+  }
+
+  InputStream countIn(InputStream in) {
+    return new FilterInputStream(in) {
+      @Override
+      public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+          bytesIn.increment();
+        }
+        return b;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read > 0) {
+          bytesIn.add(read);
+        }
+        return read;
+      }
+    };
+  }
+
+  OutputStream countOut(OutputStream out) {
+    return new FilterOutputStream(out) {
+      @Override
+      public void write(int b) throws IOException {
+        out.write(b);
+        bytesOut.increment();
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        bytesOut.add(len);
+      }
+    };
+  }
+
+  /**
+   * Wrap a sink so that the time spent writing (and closing) it, and the issues written to it, are recorded.
+   */
+  IssueSink timed(IssueSink sink) {
+    return new IssueSink() {
+      @Override
+      public void write(Issue issue) throws IOException {
+        long started = System.nanoTime();
+        sink.write(issue);
+        time(Phase.WRITE, System.nanoTime() - started);
+        issuesWritten.increment();
+      }
+
+      @Override
+      public void close() throws IOException {
+        long started = System.nanoTime();
+        try {
+          sink.close();
+        } finally {
+          time(Phase.WRITE, System.nanoTime() - started);
+        }
+      }
+    };
+  }
+
+  /**
+   * Stop the wall clock.
+   */
+  void finish() {
+    wallNanos = System.nanoTime() - start;
+  }
+
+  String toJson(JsonFactory factory) throws IOException {
+    StringWriter json = new StringWriter();
+    try (JsonGenerator generator = factory.createGenerator(json)) {
+      generator.setPrettyPrinter(new DefaultPrettyPrinter());
+      generator.writeStartObject();
+      generator.writeStringField("reportFile", reportFile);
+      generator.writeNumberField("wallMillis", millis(wallNanos));
+      generator.writeFieldName("phaseMillis");
+      generator.writeStartObject();
+      for (Map.Entry<Phase, LongAdder> phase : phases.entrySet()) {
+        generator.writeNumberField(phase.getKey().name().toLowerCase(), millis(phase.getValue().sum()));
+      }
+      generator.writeEndObject();
+      generator.writeNumberField("linesRead", getLinesRead());
+      generator.writeNumberField("linesMatchedRule", getRuleLines());
+      generator.writeNumberField("linesMatchedMessage", getMessageLines());
+      generator.writeNumberField("linesDropped", getDroppedLines());
+      generator.writeNumberField("issuesWritten", getIssuesWritten());
+      generator.writeNumberField("issuesPerSecond",
+          wallNanos > 0 ? Math.round(getIssuesWritten() * (double) TimeUnit.SECONDS.toNanos(1) / wallNanos) : 0);
+      generator.writeNumberField("bytesIn", getBytesIn());
+      generator.writeNumberField("bytesOut", getBytesOut());
+      if (measurePeakHeap) {
+        generator.writeNumberField("peakHeapBytes", peakHeap());
+      }
+      generator.writeEndObject();
+    }
+    return json.toString();
+  }
+
+  private static double millis(long nanos) {
+    return Math.round(nanos / 10_000.0) / 100.0;
+  }
+
+  // The sum of the peaks of the heap pools; they do not all peak at the same time so this is an upper bound.
+  private static long peakHeap() {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      MemoryUsage usage = pool.getType() == MemoryType.HEAP && pool.isValid() ? pool.getPeakUsage() : null;
+      if (usage != null) {
+        peak += usage.getUsed();
+      }
+    }
+    return peak;
+  }
+}
@@ -1,39 +1,49 @@
 package com.adaptris.verify;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import java.util.Scanner;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.MissingOptionException;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import com.adaptris.verify.report.sonar.Issue;
 import com.adaptris.verify.report.sonar.Issues;
-import com.adaptris.verify.report.sonar.Location;
-import com.adaptris.verify.report.sonar.Severity;
-import com.adaptris.verify.report.sonar.Type;
-import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 
 public class CreateVerifyReport {
 
-  private final Options options;
+  // Built on first use, so that --help and embedded use do not pay for what they never need.
+  @Getter(value = AccessLevel.PRIVATE, lazy = true)
+  private final Options options = createOptions();
+  @Getter(value = AccessLevel.PRIVATE, lazy = true)
+  private final JsonFactory jsonFactory = new JsonFactory();
   private final Options helpOnlyOptions;
 
   private static final String HELP_ARG = "help";
@@ -42,52 +52,297 @@ public class CreateVerifyReport {
   private static final String ENGINE_ID_ARG = "engineId";
   private static final String RULE_ID_PREFIX_ARG = "ruleIdPrefix";
   private static final String LOCATION_FILE_PATH_ARG = "locationFilePath";
+  private static final String PARALLEL_ARG = "parallel";
+  private static final String PIPELINE_ARG = "pipeline";
+  private static final String RESOLVE_LOCATIONS_ARG = "resolveLocations";
+  private static final String BATCH_ARG = "batch";
+  private static final String BATCH_GLOB_ARG = "batchGlob";
+  private static final String BATCH_THREADS_ARG = "batchThreads";
+  private static final String COMPACT_ARG = "compact";
+  private static final String FORMAT_ARG = "format";
+  private static final String OUTPUT_ARG = "output";
+  private static final String STATS_ARG = "stats";
+  private static final String WATCH_ARG = "watch";
+  private static final String BASELINE_ARG = "baseline";
+  private static final String WRITE_BASELINE_ARG = "writeBaseline";
+  private static final String MERGE_ARG = "merge";
+  private static final String SORT_ARG = "sort";
+  private static final String DEDUPE_ARG = "dedupe";
+  private static final String RULE_CATALOGUE_ARG = "ruleCatalogue";
+  private static final String FAIL_ON_ARG = "failOn";
+  private static final String GATE_ONLY_ARG = "gateOnly";
+  private static final String AGGREGATE_ARG = "aggregate";
+  private static final String EFFORT_MINUTES_ARG = "effortMinutes";
+  private static final String DAEMON_ARG = "daemon";
+  private static final String USE_DAEMON_ARG = "useDaemon";
+  private static final String STOP_DAEMON_ARG = "stopDaemon";
+  private static final String DAEMON_DIR_ARG = "daemonDir";
 
-  private static final String ENGINE_ID_DEFAULT = "interlokVerify";
-  private static final String RULE_ID_PREFIX_DEFAULT = "rule";
-  private static final String LOCATION_FILE_PATH_DEFAULT = "./src/main/interlok/config/adapter.xml";
-  private static final String REGEX_TYPES =
-      Arrays.stream(Type.values()).map(Object::toString).collect(Collectors.joining("|"));
-  private static final String REGEX_SEVERITIES =
-      Arrays.stream(Severity.values()).map(Object::toString).collect(Collectors.joining("|"));
+  static final String ENGINE_ID_DEFAULT = "interlokVerify";
+  static final String RULE_ID_PREFIX_DEFAULT = "rule";
+  static final String LOCATION_FILE_PATH_DEFAULT = "./src/main/interlok/config/adapter.xml";
 
-  private static final String REGEX_RULES = "^(?<type>" + REGEX_TYPES + "),(?<severity>"
-      + REGEX_SEVERITIES + "),(?<message>(?<rule>[^:]+):.*)$";
+  static final int QUALITY_GATE_FAILED = 2;
+  private static final String DAEMON_DIR_DEFAULT =
+      Paths.get(System.getProperty("user.home"), ".interlok-verify-report").toString();
 
-  private static final String REGEX_MESSAGE_ONLY =
-      "^(?<type>" + REGEX_TYPES + "),(?<severity>" + REGEX_SEVERITIES + "),(?<message>.*)$";
-  
-  private transient Pattern rulePattern;
-  private transient Pattern messagePattern;
-  
   CreateVerifyReport() {
-    options = new Options();
-    Option help = new Option("h", HELP_ARG, false, "Displays this..");
-    options.addOption(help);
-    options.addRequiredOption("f", REPORT_FILE_ARG, true, "(required) The verify report file");
-    options.addRequiredOption("o", OUTPUT_FILE_ARG, true, "(required) The output file");
+    helpOnlyOptions = new Options();
+    helpOnlyOptions.addOption(helpOption());
+  }
+
+  private static Option helpOption() {
+    return new Option("h", HELP_ARG, false, "Displays this..");
+  }
+
+  private static Options createOptions() {
+    Options options = new Options();
+    options.addOption(helpOption());
+    options.addOption("f", REPORT_FILE_ARG, true, "(required unless batch) The verify report file, which may be gzipped or zipped, - for stdin");
+    options.addOption("o", OUTPUT_FILE_ARG, true, "(required unless batch) The output file, - for stdout");
     options.addOption("e", ENGINE_ID_ARG, true, String.format("The engine id (default: %s)", ENGINE_ID_DEFAULT));
     options.addOption("r", RULE_ID_PREFIX_ARG, true, String.format("The rule id prefix (default: %s)", RULE_ID_PREFIX_DEFAULT));
     options.addOption("l", LOCATION_FILE_PATH_ARG, true, String.format("The location file path (default: %s)", LOCATION_FILE_PATH_DEFAULT));
-
-    helpOnlyOptions = new Options();
-    helpOnlyOptions.addOption(help);
-    rulePattern = Pattern.compile(REGEX_RULES);
-    messagePattern = Pattern.compile(REGEX_MESSAGE_ONLY);
+    options.addOption(Option.builder("p").longOpt(PARALLEL_ARG).hasArg().optionalArg(true).argName("threads")
+        .desc("Memory map the report and parse it in parallel (default threads: available processors)").build());
+    options.addOption(Option.builder("P").longOpt(PIPELINE_ARG).hasArg().optionalArg(true).argName("workers")
+        .desc("Read, classify and write concurrently, for stdin and compressed reports that can not be memory "
+            + "mapped (default workers: available processors)").build());
+    options.addOption("x", RESOLVE_LOCATIONS_ARG, false,
+        "Index the unique-ids in the location file and add the line range of the component named by each issue");
+    options.addOption("b", BATCH_ARG, true,
+        "Convert every reportFile,outputFile[,locationFilePath] line in this manifest file");
+    options.addOption("g", BATCH_GLOB_ARG, true,
+        "Convert every report matching this glob, writing each output next to its report as .json "
+            + "(.sonar.json if the report is .json)");
+    options.addOption("t", BATCH_THREADS_ARG, true,
+        "The number of reports to convert concurrently in batch or daemon mode (default: available processors)");
+    options.addOption("c", COMPACT_ARG, false, "Write the output without pretty printing");
+    options.addOption(Option.builder("F").longOpt(FORMAT_ARG).hasArg().argName("sonar|sarif|junit")
+        .desc("An additional output format, repeatable; each is paired with the --output in the same position").build());
+    options.addOption(Option.builder("O").longOpt(OUTPUT_ARG).hasArg().argName("file")
+        .desc("The file for the --format in the same position, - for stdout").build());
+    options.addOption(Option.builder("s").longOpt(STATS_ARG).hasArg().optionalArg(true).argName("file")
+        .desc("Write phase timings and throughput as JSON to this file (default: stderr)").build());
+    options.addOption(Option.builder("w").longOpt(WATCH_ARG).hasArg().optionalArg(true).argName("pollMillis")
+        .desc(String.format("Keep following the report as it is appended to, rewriting the outputs as it changes "
+            + "(default poll: %dms)", ReportWatcher.DEFAULT_POLL_MILLIS)).build());
+    options.addOption("B", BASELINE_ARG, true, "Leave out the issues recorded in this baseline file");
+    options.addOption("W", WRITE_BASELINE_ARG, true, "Record every issue in this baseline file");
+    options.addOption(Option.builder("m").longOpt(MERGE_ARG).hasArgs().argName("files")
+        .desc("Merge these sonar issue files into the outputs instead of converting a report").build());
+    options.addOption(null, SORT_ARG, false, "Sort merged issues by file path and rule id");
+    options.addOption(null, DEDUPE_ARG, false, "Remove duplicate merged issues (implies --sort)");
+    options.addOption("C", RULE_CATALOGUE_ARG, true,
+        "A JSON catalogue of stable rule ids (and optional severity/type) for message substrings and patterns");
+    options.addOption(Option.builder().longOpt(FAIL_ON_ARG).hasArg().argName("thresholds")
+        .desc(String.format("Exit with %d if there are at least this many issues of a severity or type, "
+            + "e.g. BLOCKER:1,CRITICAL:10", QUALITY_GATE_FAILED)).build());
+    options.addOption(null, GATE_ONLY_ARG, false,
+        "Only check --failOn, writing no outputs and stopping at the first threshold reached");
+    options.addOption("a", AGGREGATE_ARG, false,
+        "Write repeated issues once, with the number of occurrences appended to the message");
+    options.addOption(Option.builder().longOpt(EFFORT_MINUTES_ARG).hasArg().argName("minutes")
+        .desc("With --aggregate, the effort to fix each occurrence; multiplied by the occurrences").build());
+    options.addOption(null, DAEMON_ARG, false, "Stay running, converting reports for --useDaemon until --stopDaemon");
+    options.addOption(null, USE_DAEMON_ARG, false,
+        "Convert in the running daemon if there is one, otherwise in this process");
+    options.addOption(null, STOP_DAEMON_ARG, false, "Stop the running daemon");
+    options.addOption(null, DAEMON_DIR_ARG, true,
+        String.format("Where the daemon registers its port (default: %s)", DAEMON_DIR_DEFAULT));
+    return options;
   }
 
   public static void main(String[] args) throws Exception {
     CreateVerifyReport report = new CreateVerifyReport();
-    report.run(args);
+    int status = report.run(args);
+    if (status != 0) {
+      System.exit(status);
+    }
   }
 
-  void run(String[] args) throws IOException, ParseException {
+  int run(String[] args) throws IOException, ParseException {
     ArgumentWrapper argumentWrapper = parseArguments(args);
-    if (argumentWrapper != null) {
-      ObjectMapper mapper = new ObjectMapper();
-      mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
-      Issues issues = createIssues(argumentWrapper, readFile(argumentWrapper.getReportFile(), StandardCharsets.UTF_8));
-      mapper.writerWithDefaultPrettyPrinter().writeValue(new File(argumentWrapper.getOutputFile()), issues);
+    if (argumentWrapper == null) {
+      return 0;
+    }
+    if (argumentWrapper.getDaemon()) {
+      ConversionDaemon daemon = new ConversionDaemon(this, Paths.get(argumentWrapper.getDaemonDir()),
+          argumentWrapper.getBatchThreads());
+      daemon.warmUp();
+      System.err.println("Daemon listening on port " + daemon.start());
+      daemon.serve();
+      return 0;
+    }
+    if (argumentWrapper.getStopDaemon()) {
+      if (!DaemonClient.stop(Paths.get(argumentWrapper.getDaemonDir()))) {
+        System.err.println("No daemon running");
+      }
+      return 0;
+    }
+    if (argumentWrapper.isBatch()) {
+      List<ArgumentWrapper> jobs = new ArrayList<>();
+      if (argumentWrapper.getBatchManifest() != null) {
+        jobs.addAll(BatchConverter.readManifest(Paths.get(argumentWrapper.getBatchManifest()), argumentWrapper));
+      }
+      if (argumentWrapper.getBatchGlob() != null) {
+        jobs.addAll(BatchConverter.expandGlob(argumentWrapper.getBatchGlob(), argumentWrapper));
+      }
+      List<BatchConverter.Result> results =
+          new BatchConverter(this, argumentWrapper.getBatchThreads()).convert(jobs);
+      return BatchConverter.report(results, System.out, System.err);
+    }
+    try {
+      if (argumentWrapper.isMerge()) {
+        merge(argumentWrapper);
+      } else if (argumentWrapper.isWatch()) {
+        watch(argumentWrapper);
+      } else if (!argumentWrapper.getUseDaemon() || !DaemonClient.canSend(argumentWrapper)
+          || !DaemonClient.convert(Paths.get(argumentWrapper.getDaemonDir()), argumentWrapper)) {
+        convert(argumentWrapper);
+      }
+    } catch (QualityGate.FailedException e) {
+      System.err.println("Quality gate failed: " + e.getMessage());
+      return QUALITY_GATE_FAILED;
+    }
+    return 0;
+  }
+
+  /**
+   * Merge existing sonar issue files into the outputs.
+   */
+  void merge(ArgumentWrapper argumentWrapper) throws IOException {
+    List<Path> inputs = new ArrayList<>();
+    for (String mergeFile : argumentWrapper.getMergeFiles()) {
+      Path input = Paths.get(mergeFile);
+      if (!Files.isReadable(input)) {
+        throw new NoSuchFileException(mergeFile);
+      }
+      inputs.add(input);
+    }
+    QualityGate gate = qualityGate(argumentWrapper);
+    try (IssueSink sink = openSink(argumentWrapper, null, gate)) {
+      new IssuesMerger(getJsonFactory()).merge(inputs, argumentWrapper.getSort(), argumentWrapper.getDedupe(), sink);
+    }
+    checkGate(gate);
+  }
+
+  /**
+   * Follow the report until interrupted, rewriting every output each time new issues are appended.
+   */
+  void watch(ArgumentWrapper argumentWrapper) throws IOException {
+    BaselineIndex baseline = loadBaseline(argumentWrapper);
+    new ReportWatcher(Paths.get(argumentWrapper.getReportFile()), createClassifier(argumentWrapper, true),
+        issues -> writeOutputs(argumentWrapper, baseline == null ? issues : issues.stream()
+            .filter(i -> !baseline.contains(BaselineIndex.fingerprint(i, argumentWrapper.getRuleIdPrefix())))
+            .collect(Collectors.toList())))
+        .watch(argumentWrapper.getWatchPollMillis());
+  }
+
+  /**
+   * Write every output in full, replacing each file in one step so that readers never see it half written.
+   */
+  void writeOutputs(ArgumentWrapper argumentWrapper, List<Issue> issues) throws IOException {
+    for (Output output : argumentWrapper.outputs()) {
+      Path target = Paths.get(output.getFile()).toAbsolutePath();
+      Path temp = target.resolveSibling("." + target.getFileName() + ".tmp");
+      try (IssueSink sink = aggregate(argumentWrapper, openSink(argumentWrapper,
+          new Output(output.getFormat(), temp.toString()), CompressedStreams.isGzipName(output.getFile()), null))) {
+        for (Issue issue : issues) {
+          sink.write(issue);
+        }
+      } catch (IOException e) {
+        Files.deleteIfExists(temp);
+        throw e;
+      }
+      try {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+  }
+
+  void convert(ArgumentWrapper argumentWrapper) throws IOException {
+    ConversionStats stats = argumentWrapper.getStats()
+        ? new ConversionStats(argumentWrapper.getReportFile(), !argumentWrapper.getBatchJob())
+        : null;
+    BaselineIndex.Builder nextBaseline = argumentWrapper.getWriteBaseline() != null
+        ? new BaselineIndex.Builder(argumentWrapper.getRuleIdPrefix())
+        : null;
+    QualityGate gate = qualityGate(argumentWrapper);
+    if (argumentWrapper.getParallelism() > 0 && !StandardStreams.isStdio(argumentWrapper.getReportFile())
+        && !CompressedStreams.isCompressed(Paths.get(argumentWrapper.getReportFile()))) {
+      try (FileChannel channel = FileChannel.open(Paths.get(argumentWrapper.getReportFile()), StandardOpenOption.READ);
+          IssueSink writer = openSink(argumentWrapper, stats, gate)) {
+        if (stats != null) {
+          stats.bytesIn(channel.size());
+        }
+        new ParallelReportParser(argumentWrapper.getParallelism(), ParallelReportParser.DEFAULT_CHUNK_SIZE, stats)
+            .parse(channel, createClassifier(argumentWrapper, false, stats), handler(writer, nextBaseline));
+      }
+    } else {
+      try (ReportLineReader reader = openReport(argumentWrapper.getReportFile(), stats);
+          IssueSink writer = openSink(argumentWrapper, stats, gate)) {
+        LineClassifier classifier = createClassifier(argumentWrapper, false, stats);
+        if (argumentWrapper.getPipelineWorkers() > 0) {
+          new PipelinedReportParser(argumentWrapper.getPipelineWorkers(), PipelinedReportParser.DEFAULT_BATCH_SIZE, stats)
+              .parse(reader, classifier, handler(writer, nextBaseline));
+        } else {
+          createIssues(classifier, reader, handler(writer, nextBaseline), stats);
+        }
+      }
+    }
+    // Only once the conversion has succeeded, so that a failed run never leaves a partial baseline.
+    if (nextBaseline != null) {
+      nextBaseline.write(Paths.get(argumentWrapper.getWriteBaseline()));
+    }
+    if (stats != null) {
+      stats.finish();
+      writeStats(argumentWrapper, stats);
+    }
+    checkGate(gate);
+  }
+
+  private static IssueHandler handler(IssueSink sink, BaselineIndex.Builder nextBaseline) {
+    return new IssueHandler() {
+      @Override
+      public void handle(Issue issue) throws IOException {
+        if (nextBaseline != null) {
+          nextBaseline.add(issue);
+        }
+        sink.write(issue);
+      }
+
+      @Override
+      public boolean isComplete() {
+        return sink.isComplete();
+      }
+    };
+  }
+
+  private static QualityGate qualityGate(ArgumentWrapper argumentWrapper) {
+    return argumentWrapper.getFailOn() != null
+        ? new QualityGate(argumentWrapper.getFailOn(), argumentWrapper.getGateOnly())
+        : null;
+  }
+
+  private static void checkGate(QualityGate gate) throws QualityGate.FailedException {
+    if (gate != null && gate.isFailed()) {
+      throw new QualityGate.FailedException(gate.describe());
+    }
+  }
+
+  private static BaselineIndex loadBaseline(ArgumentWrapper argumentWrapper) throws IOException {
+    return argumentWrapper.getBaseline() != null ? BaselineIndex.load(Paths.get(argumentWrapper.getBaseline())) : null;
+  }
+
+  private void writeStats(ArgumentWrapper argumentWrapper, ConversionStats stats) throws IOException {
+    String json = stats.toJson(getJsonFactory());
+    if (argumentWrapper.getStatsFile() == null) {
+      System.err.println(json);
+    } else {
+      Files.write(Paths.get(argumentWrapper.getStatsFile()), json.getBytes(StandardCharsets.UTF_8));
     }
   }
 
@@ -99,14 +354,106 @@ public class CreateVerifyReport {
         usage();
         return null;
       }
-      CommandLine line = parser.parse(options, args);
-      return new ArgumentWrapper(
+      CommandLine line = parser.parse(getOptions(), args);
+      ArgumentWrapper argumentWrapper = new ArgumentWrapper(
         line.getOptionValue(ENGINE_ID_ARG, ENGINE_ID_DEFAULT),
         line.getOptionValue(RULE_ID_PREFIX_ARG, RULE_ID_PREFIX_DEFAULT),
         line.getOptionValue(LOCATION_FILE_PATH_ARG, LOCATION_FILE_PATH_DEFAULT),
         line.getOptionValue(REPORT_FILE_ARG),
         line.getOptionValue(OUTPUT_FILE_ARG)
       );
+      if (line.hasOption(PARALLEL_ARG)) {
+        argumentWrapper.setParallelism(positiveIntValue(line, PARALLEL_ARG, Runtime.getRuntime().availableProcessors()));
+      }
+      if (line.hasOption(PIPELINE_ARG)) {
+        argumentWrapper.setPipelineWorkers(positiveIntValue(line, PIPELINE_ARG, Runtime.getRuntime().availableProcessors()));
+      }
+      argumentWrapper.setResolveLocations(line.hasOption(RESOLVE_LOCATIONS_ARG));
+      argumentWrapper.setCompact(line.hasOption(COMPACT_ARG));
+      argumentWrapper.setAdditionalOutputs(additionalOutputs(line));
+      argumentWrapper.setStats(line.hasOption(STATS_ARG));
+      argumentWrapper.setStatsFile(line.getOptionValue(STATS_ARG));
+      if (line.hasOption(MERGE_ARG)) {
+        argumentWrapper.setMergeFiles(Arrays.asList(line.getOptionValues(MERGE_ARG)));
+      }
+      argumentWrapper.setSort(line.hasOption(SORT_ARG));
+      argumentWrapper.setDedupe(line.hasOption(DEDUPE_ARG));
+      argumentWrapper.setRuleCatalogue(line.getOptionValue(RULE_CATALOGUE_ARG));
+      argumentWrapper.setBaseline(line.getOptionValue(BASELINE_ARG));
+      argumentWrapper.setWriteBaseline(line.getOptionValue(WRITE_BASELINE_ARG));
+      argumentWrapper.setFailOn(line.getOptionValue(FAIL_ON_ARG));
+      argumentWrapper.setGateOnly(line.hasOption(GATE_ONLY_ARG));
+      argumentWrapper.setAggregate(line.hasOption(AGGREGATE_ARG));
+      if (line.hasOption(EFFORT_MINUTES_ARG)) {
+        if (!argumentWrapper.getAggregate()) {
+          throw new ParseException(String.format("--%s needs --%s", EFFORT_MINUTES_ARG, AGGREGATE_ARG));
+        }
+        argumentWrapper.setEffortMinutes(positiveIntValue(line, EFFORT_MINUTES_ARG, 0));
+      }
+      if (argumentWrapper.getFailOn() != null) {
+        try {
+          new QualityGate(argumentWrapper.getFailOn(), false);
+        } catch (IllegalArgumentException e) {
+          throw new ParseException(String.format("Invalid value for %s: %s", FAIL_ON_ARG, e.getMessage()));
+        }
+      } else if (argumentWrapper.getGateOnly()) {
+        throw new MissingOptionException(Arrays.asList(FAIL_ON_ARG));
+      }
+      if (line.hasOption(WATCH_ARG)) {
+        argumentWrapper.setWatchPollMillis(positiveIntValue(line, WATCH_ARG, (int) ReportWatcher.DEFAULT_POLL_MILLIS));
+      }
+      argumentWrapper.setBatchManifest(line.getOptionValue(BATCH_ARG));
+      argumentWrapper.setBatchGlob(line.getOptionValue(BATCH_GLOB_ARG));
+      argumentWrapper.setBatchThreads(intValue(line, BATCH_THREADS_ARG, Runtime.getRuntime().availableProcessors()));
+      argumentWrapper.setDaemon(line.hasOption(DAEMON_ARG));
+      argumentWrapper.setUseDaemon(line.hasOption(USE_DAEMON_ARG));
+      argumentWrapper.setStopDaemon(line.hasOption(STOP_DAEMON_ARG));
+      argumentWrapper.setDaemonDir(line.getOptionValue(DAEMON_DIR_ARG, DAEMON_DIR_DEFAULT));
+      if (argumentWrapper.getDaemon() || argumentWrapper.getStopDaemon()) {
+        // Neither converts anything here, so none of the other options apply.
+        return argumentWrapper;
+      }
+      if (argumentWrapper.isBatch()) {
+        if (!argumentWrapper.getAdditionalOutputs().isEmpty()) {
+          throw new ParseException(String.format("--%s can not be used in batch mode", FORMAT_ARG));
+        }
+        if (argumentWrapper.isWatch()) {
+          throw new ParseException(String.format("--%s can not be used in batch mode", WATCH_ARG));
+        }
+        if (argumentWrapper.getWriteBaseline() != null) {
+          throw new ParseException(String.format("--%s can not be used in batch mode", WRITE_BASELINE_ARG));
+        }
+        if (argumentWrapper.isMerge()) {
+          throw new ParseException(String.format("--%s can not be used in batch mode", MERGE_ARG));
+        }
+      } else if (argumentWrapper.isMerge()) {
+        if (argumentWrapper.isWatch()) {
+          throw new ParseException(String.format("--%s can not be used with --%s", MERGE_ARG, WATCH_ARG));
+        }
+        if (argumentWrapper.outputs().isEmpty() && !argumentWrapper.getGateOnly()) {
+          throw new MissingOptionException(Arrays.asList(OUTPUT_FILE_ARG));
+        }
+      } else if (argumentWrapper.getAdditionalOutputs().isEmpty() && argumentWrapper.getWriteBaseline() == null
+          && !argumentWrapper.getGateOnly()) {
+        checkRequired(line, REPORT_FILE_ARG, OUTPUT_FILE_ARG);
+      } else {
+        checkRequired(line, REPORT_FILE_ARG);
+      }
+      if (argumentWrapper.isWatch() && (StandardStreams.isStdio(argumentWrapper.getReportFile())
+          || argumentWrapper.outputs().stream().anyMatch(o -> StandardStreams.isStdio(o.getFile())))) {
+        throw new ParseException(String.format("--%s needs a report file and output files rather than -", WATCH_ARG));
+      }
+      if (argumentWrapper.isWatch() && argumentWrapper.getWriteBaseline() != null) {
+        throw new ParseException(String.format("--%s can not be used with --%s", WRITE_BASELINE_ARG, WATCH_ARG));
+      }
+      if (argumentWrapper.isWatch() && argumentWrapper.getFailOn() != null) {
+        throw new ParseException(String.format("--%s can not be used with --%s", FAIL_ON_ARG, WATCH_ARG));
+      }
+      // Stopping at the first threshold reached would leave the baseline incomplete.
+      if (argumentWrapper.getGateOnly() && argumentWrapper.getWriteBaseline() != null) {
+        throw new ParseException(String.format("--%s can not be used with --%s", WRITE_BASELINE_ARG, GATE_ONLY_ARG));
+      }
+      return argumentWrapper;
     } catch (ParseException e) {
       usage();
       throw e;
@@ -115,49 +462,210 @@ public class CreateVerifyReport {
 
   Issues createIssues(ArgumentWrapper argumentWrapper, String report) {
     List<Issue> issueList = new ArrayList<>();
-    try (Scanner scanner = new Scanner(report)) {
-      int i = 1;
-      while (scanner.hasNextLine()) {
-        String line = scanner.nextLine();
-        createIssue(argumentWrapper, line, i++).ifPresent(issueList::add);
-      }
+    try (ReportLineReader reader = new ReportLineReader(new StringReader(report))) {
+      createIssues(createClassifier(argumentWrapper, true), reader, issueList::add);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
     }
     return new Issues(issueList);
   }
+
+  LineClassifier createClassifier(ArgumentWrapper argumentWrapper, boolean shareInstances) throws IOException {
+    return createClassifier(argumentWrapper, shareInstances, null);
+  }
+
+  private LineClassifier createClassifier(ArgumentWrapper argumentWrapper, boolean shareInstances,
+      ConversionStats stats) throws IOException {
+    long started = System.nanoTime();
+    LocationIndex locationIndex = argumentWrapper.getResolveLocations()
+        ? LocationIndex.build(Paths.get(argumentWrapper.getLocationFilePath()))
+        : null;
+    RuleCatalogue catalogue = argumentWrapper.getRuleCatalogue() != null
+        ? RuleCatalogue.load(Paths.get(argumentWrapper.getRuleCatalogue()))
+        : null;
+    LineClassifier classifier = new LineClassifier(argumentWrapper, shareInstances, locationIndex, catalogue, stats);
+    if (stats != null) {
+      stats.time(ConversionStats.Phase.SETUP, System.nanoTime() - started);
+    }
+    return classifier;
+  }
+
+  void createIssues(LineClassifier classifier, ReportLineReader reader, IssueHandler handler) throws IOException {
+    createIssues(classifier, reader, handler, null);
+  }
+
+  private void createIssues(LineClassifier classifier, ReportLineReader reader, IssueHandler handler,
+      ConversionStats stats) throws IOException {
+    int i = 1;
+    String line;
+    while (!handler.isComplete() && (line = readLine(reader, stats)) != null) {
+      Optional<Issue> issue = classifier.classify(line, i++);
+      if (issue.isPresent()) {
+        handler.handle(issue.get());
+      }
+    }
+  }
+
+  private static String readLine(ReportLineReader reader, ConversionStats stats) throws IOException {
+    if (stats == null) {
+      return reader.readLine();
+    }
+    long started = System.nanoTime();
+    String line = reader.readLine();
+    stats.time(ConversionStats.Phase.READ, System.nanoTime() - started);
+    return line;
+  }
   
-  private Optional<Issue> createIssue(ArgumentWrapper argumentWrapper,String line, int count) {
-    Matcher ruleMatcher = rulePattern.matcher(line);
-    Matcher msgMatcher = messagePattern.matcher(line);
-    if (ruleMatcher.matches()) {
-      return Optional.of(new Issue(argumentWrapper.getEngineId(), ruleMatcher.group("rule").replace(" ", "_").toLowerCase(),
-          Severity.valueOf(ruleMatcher.group("severity")),
-          Type.valueOf(ruleMatcher.group("type")),
-          new Location(
-              ruleMatcher.group("message"),
-              argumentWrapper.getLocationFilePath())));
-    } else if (msgMatcher.matches()){
-      return Optional.of(new Issue(argumentWrapper.getEngineId(), 
-          argumentWrapper.getRuleIdPrefix() + count,
-          Severity.valueOf(msgMatcher.group("severity")),
-          Type.valueOf(msgMatcher.group("type")),
-          new Location(
-              msgMatcher.group("message"),
-              argumentWrapper.getLocationFilePath())));
-    }
-    return Optional.empty();
+  private static void checkRequired(CommandLine line, String... required) throws MissingOptionException {
+    List<String> missing = new ArrayList<>();
+    for (String option : required) {
+      if (!line.hasOption(option)) {
+        missing.add(option);
+      }
+    }
+    if (!missing.isEmpty()) {
+      throw new MissingOptionException(missing);
+    }
+  }
+
+  private static List<Output> additionalOutputs(CommandLine line) throws ParseException {
+    String[] formats = line.hasOption(FORMAT_ARG) ? line.getOptionValues(FORMAT_ARG) : new String[0];
+    String[] files = line.hasOption(OUTPUT_ARG) ? line.getOptionValues(OUTPUT_ARG) : new String[0];
+    if (formats.length != files.length) {
+      throw new ParseException(String.format("Each --%s needs a matching --%s", FORMAT_ARG, OUTPUT_ARG));
+    }
+    List<Output> outputs = new ArrayList<>(formats.length);
+    for (int i = 0; i < formats.length; i++) {
+      OutputFormat format = OutputFormat.forName(formats[i]);
+      if (format == null) {
+        throw new ParseException(String.format("Invalid value for %s: %s", FORMAT_ARG, formats[i]));
+      }
+      outputs.add(new Output(format, files[i]));
+    }
+    return outputs;
+  }
+
+  private static int intValue(CommandLine line, String option, int defaultValue) throws ParseException {
+    String value = line.getOptionValue(option);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new ParseException(String.format("Invalid value for %s: %s", option, value));
+    }
+  }
+
+  // For options where 0 or less would quietly turn the option off.
+  private static int positiveIntValue(CommandLine line, String option, int defaultValue) throws ParseException {
+    int value = intValue(line, option, defaultValue);
+    if (value < 1) {
+      throw new ParseException(String.format("Invalid value for %s: %d", option, value));
+    }
+    return value;
   }
 
   private void usage() {
     HelpFormatter formatter = new HelpFormatter();
-    formatter.printHelp("interlok-verify-report", options);
+    formatter.printHelp("interlok-verify-report", getOptions());
   }
 
-  private String readFile(String path, Charset encoding) throws IOException {
-    byte[] encoded = Files.readAllBytes(Paths.get(path));
-    return new String(encoded, encoding);
+  private ReportLineReader openReport(String path, ConversionStats stats) throws IOException {
+    InputStream in = StandardStreams.isStdio(path) ? StandardStreams.in() : Files.newInputStream(Paths.get(path));
+    if (stats != null) {
+      in = stats.countIn(in);
+    }
+    return new ReportLineReader(new InputStreamReader(CompressedStreams.decompress(in), StandardCharsets.UTF_8));
   }
 
-  @AllArgsConstructor
+  private IssueSink openSink(ArgumentWrapper argumentWrapper, ConversionStats stats, QualityGate gate)
+      throws IOException {
+    BaselineIndex baseline = loadBaseline(argumentWrapper);
+    IssueSink sink = openSinks(argumentWrapper, stats);
+    if (stats != null) {
+      sink = stats.timed(sink);
+    }
+    sink = aggregate(argumentWrapper, sink);
+    if (gate != null) {
+      sink = gate.counting(sink);
+    }
+    return baseline != null ? new BaselineIssueSink(sink, argumentWrapper.getRuleIdPrefix(), baseline) : sink;
+  }
+
+  private static IssueSink aggregate(ArgumentWrapper argumentWrapper, IssueSink sink) {
+    return argumentWrapper.getAggregate()
+        ? new AggregatingIssueSink(sink, argumentWrapper.getRuleIdPrefix(), argumentWrapper.getEffortMinutes())
+        : sink;
+  }
+
+  private IssueSink openSinks(ArgumentWrapper argumentWrapper, ConversionStats stats) throws IOException {
+    List<Output> outputs = argumentWrapper.getGateOnly() ? new ArrayList<>() : argumentWrapper.outputs();
+    if (outputs.size() == 1) {
+      return openSink(argumentWrapper, outputs.get(0), stats);
+    }
+    List<IssueSink> sinks = new ArrayList<>(outputs.size());
+    try {
+      for (Output output : outputs) {
+        sinks.add(openSink(argumentWrapper, output, stats));
+      }
+    } catch (IOException e) {
+      for (IssueSink sink : sinks) {
+        try {
+          sink.close();
+        } catch (IOException suppressed) {
+          e.addSuppressed(suppressed);
+        }
+      }
+      throw e;
+    }
+    return new FanOutIssueSink(sinks);
+  }
+
+  private IssueSink openSink(ArgumentWrapper argumentWrapper, Output output, ConversionStats stats)
+      throws IOException {
+    return openSink(argumentWrapper, output, CompressedStreams.isGzipName(output.getFile()), stats);
+  }
+
+  private IssueSink openSink(ArgumentWrapper argumentWrapper, Output output, boolean gzip, ConversionStats stats)
+      throws IOException {
+    boolean stdout = StandardStreams.isStdio(output.getFile());
+    OutputStream out = stdout ? StandardStreams.out() : Files.newOutputStream(Paths.get(output.getFile()));
+    if (stats != null) {
+      out = stats.countOut(out);
+    }
+    if (gzip) {
+      out = CompressedStreams.compress(out);
+    }
+    boolean pretty = !argumentWrapper.getCompact();
+    try {
+      switch (output.getFormat()) {
+        case SARIF:
+          return new SarifIssuesWriter(getJsonFactory(), out, argumentWrapper.getEngineId(), pretty, stdout);
+        case JUNIT:
+          return new JUnitIssuesWriter(out, argumentWrapper.getEngineId(), stdout);
+        default:
+          return new SonarIssuesWriter(getJsonFactory(), out, pretty, stdout);
+      }
+    } catch (IOException e) {
+      out.close();
+      throw e;
+    }
+  }
+
+  @FunctionalInterface
+  interface IssueHandler {
+    void handle(Issue issue) throws IOException;
+
+    /**
+     * Whether no more issues are needed, so that the rest of the report does not have to be read.
+     */
+    default boolean isComplete() {
+      return false;
+    }
+  }
+
+  @RequiredArgsConstructor
   static class ArgumentWrapper {
 
     @Getter
@@ -174,6 +682,167 @@ public class CreateVerifyReport {
 
     @Getter
     private final String outputFile;
+
+    @Getter
+    @Setter
+    private int parallelism;
+
+    /** Used for reports that can not be memory mapped for {@link #parallelism}. */
+    @Getter
+    @Setter
+    private int pipelineWorkers;
+
+    @Getter
+    @Setter
+    private boolean resolveLocations;
+
+    @Getter
+    @Setter
+    private boolean compact;
+
+    @Getter
+    @Setter
+    private List<Output> additionalOutputs = new ArrayList<>();
+
+    @Getter
+    @Setter
+    private boolean stats;
+
+    @Getter
+    @Setter
+    private String statsFile;
+
+    @Getter
+    @Setter
+    private int watchPollMillis;
+
+    @Getter
+    @Setter
+    private String ruleCatalogue;
+
+    @Getter
+    @Setter
+    private String baseline;
+
+    @Getter
+    @Setter
+    private String writeBaseline;
+
+    @Getter
+    @Setter
+    private String failOn;
+
+    @Getter
+    @Setter
+    private boolean gateOnly;
+
+    @Getter
+    @Setter
+    private boolean aggregate;
+
+    @Getter
+    @Setter
+    private Integer effortMinutes;
+
+    @Getter
+    @Setter
+    private List<String> mergeFiles;
+
+    @Getter
+    @Setter
+    private boolean sort;
+
+    @Getter
+    @Setter
+    private boolean dedupe;
+
+    @Getter
+    @Setter
+    private String batchManifest;
+
+    @Getter
+    @Setter
+    private String batchGlob;
+
+    @Getter
+    @Setter
+    private int batchThreads;
+
+    // Set on the copies that a batch converts side by side in the one JVM.
+    @Getter
+    @Setter
+    private boolean batchJob;
+
+    @Getter
+    @Setter
+    private boolean daemon;
+
+    @Getter
+    @Setter
+    private boolean useDaemon;
+
+    @Getter
+    @Setter
+    private boolean stopDaemon;
+
+    @Getter
+    @Setter
+    private String daemonDir;
+
+    /**
+     * Every output to write: the sonar {@code outputFile}, if there is one, then the additional outputs.
+     */
+    List<Output> outputs() {
+      List<Output> outputs = new ArrayList<>(additionalOutputs.size() + 1);
+      if (outputFile != null) {
+        outputs.add(new Output(OutputFormat.SONAR, outputFile));
+      }
+      outputs.addAll(additionalOutputs);
+      return outputs;
+    }
+
+    boolean isMerge() {
+      return mergeFiles != null;
+    }
+
+    boolean isWatch() {
+      return watchPollMillis > 0;
+    }
+
+    boolean isBatch() {
+      return batchManifest != null || batchGlob != null;
+    }
+
+    /**
+     * A copy of these settings for a different report, output and location.
+     */
+    ArgumentWrapper forFiles(String reportFile, String outputFile, String locationFilePath) {
+      ArgumentWrapper copy = new ArgumentWrapper(engineId, ruleIdPrefix, locationFilePath, reportFile, outputFile);
+      copy.setParallelism(parallelism);
+      copy.setPipelineWorkers(pipelineWorkers);
+      copy.setResolveLocations(resolveLocations);
+      copy.setCompact(compact);
+      // Every report would write to the same stats file, so batch stats always go to stderr.
+      copy.setStats(stats);
+      copy.setRuleCatalogue(ruleCatalogue);
+      copy.setBaseline(baseline);
+      copy.setFailOn(failOn);
+      copy.setGateOnly(gateOnly);
+      copy.setAggregate(aggregate);
+      copy.setEffortMinutes(effortMinutes);
+      copy.setBatchJob(true);
+      return copy;
+    }
+  }
+
+  @AllArgsConstructor
+  static class Output {
+
+    @Getter
+    private final OutputFormat format;
+
+    @Getter
+    private final String file;
   }
 
 }
@@ -0,0 +1,141 @@
+package com.adaptris.verify;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import com.adaptris.verify.CreateVerifyReport.ArgumentWrapper;
+
+/**
+ * Sends conversions to a running {@link ConversionDaemon}.
+ * <p>
+ * Only plain file to file conversions are sent; anything else (and every conversion when no daemon is running) is for
+ * the caller to convert in process. So is a conversion that a daemon has not picked up within
+ * {@link #READY_TIMEOUT_MILLIS}, whether it is busy or not a daemon at all.
+ * </p>
+ */
+final class DaemonClient {
+
+  static final int CONNECT_TIMEOUT_MILLIS = 2_000;
+  static final int READY_TIMEOUT_MILLIS = 2_000;
+
+  private DaemonClient() {
+  }
+
+  /**
+   * Whether the daemon can do this conversion: a report file to a sonar output file, with no options that the
+   * daemon would need the caller's working directory or console for.
+   */
+  static boolean canSend(ArgumentWrapper argumentWrapper) {
+    return argumentWrapper.getReportFile() != null && argumentWrapper.getOutputFile() != null
+        && !StandardStreams.isStdio(argumentWrapper.getReportFile())
+        && !StandardStreams.isStdio(argumentWrapper.getOutputFile())
+        && argumentWrapper.getAdditionalOutputs().isEmpty() && !argumentWrapper.isBatch()
+        && !argumentWrapper.isMerge() && !argumentWrapper.isWatch() && !argumentWrapper.getStats()
+        && !argumentWrapper.getResolveLocations() && argumentWrapper.getPipelineWorkers() == 0
+        && argumentWrapper.getRuleCatalogue() == null && argumentWrapper.getBaseline() == null
+        && argumentWrapper.getWriteBaseline() == null && argumentWrapper.getFailOn() == null
+        && !argumentWrapper.getAggregate()
+        && isSingleLine(argumentWrapper.getEngineId(), argumentWrapper.getRuleIdPrefix(),
+            argumentWrapper.getLocationFilePath(), argumentWrapper.getReportFile(), argumentWrapper.getOutputFile());
+  }
+
+  /**
+   * @return false if there is no daemon running, so the caller should convert in process.
+   * @throws IOException if the daemon ran the conversion and it failed.
+   */
+  static boolean convert(Path directory, ArgumentWrapper argumentWrapper) throws IOException {
+    Map<String, String> fields = new LinkedHashMap<>();
+    // The daemon has its own working directory.
+    fields.put(ConversionDaemon.REPORT_FILE, Paths.get(argumentWrapper.getReportFile()).toAbsolutePath().toString());
+    fields.put(ConversionDaemon.OUTPUT_FILE, Paths.get(argumentWrapper.getOutputFile()).toAbsolutePath().toString());
+    fields.put(ConversionDaemon.ENGINE_ID, argumentWrapper.getEngineId());
+    fields.put(ConversionDaemon.RULE_ID_PREFIX, argumentWrapper.getRuleIdPrefix());
+    fields.put(ConversionDaemon.LOCATION_FILE_PATH, argumentWrapper.getLocationFilePath());
+    fields.put(ConversionDaemon.COMPACT, Boolean.toString(argumentWrapper.getCompact()));
+    fields.put(ConversionDaemon.PARALLELISM, Integer.toString(argumentWrapper.getParallelism()));
+    return send(directory, ConversionDaemon.CONVERT, fields);
+  }
+
+  /**
+   * @return false if there is no daemon running.
+   */
+  static boolean stop(Path directory) throws IOException {
+    return send(directory, ConversionDaemon.STOP, new LinkedHashMap<>());
+  }
+
+  private static boolean send(Path directory, String command, Map<String, String> fields) throws IOException {
+    Properties registry = new Properties();
+    try (InputStream in = Files.newInputStream(directory.resolve(ConversionDaemon.REGISTRY_FILE))) {
+      registry.load(in);
+    } catch (NoSuchFileException e) {
+      return false;
+    }
+    try (SocketChannel channel = SocketChannel.open()) {
+      try {
+        channel.socket().connect(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+            Integer.parseInt(registry.getProperty(ConversionDaemon.PORT, "0"))), CONNECT_TIMEOUT_MILLIS);
+      } catch (IOException | IllegalArgumentException e) {
+        // A registry left behind by a daemon that did not stop cleanly.
+        return false;
+      }
+      // The socket streams rather than the channel's, so that reads honour the timeout.
+      channel.socket().setSoTimeout(READY_TIMEOUT_MILLIS);
+      Writer out = new OutputStreamWriter(channel.socket().getOutputStream(), StandardCharsets.UTF_8);
+      BufferedReader in = new BufferedReader(new InputStreamReader(channel.socket().getInputStream(),
+          StandardCharsets.UTF_8));
+      out.write(registry.getProperty(ConversionDaemon.TOKEN, "") + "\n");
+      out.flush();
+      String reply;
+      try {
+        reply = in.readLine();
+      } catch (SocketTimeoutException e) {
+        // Nothing has been sent that the daemon could act on, so treat it like a stale registry.
+        return false;
+      }
+      if (ConversionDaemon.READY.equals(reply)) {
+        out.write(command + "\n");
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+          out.write(field.getKey() + "=" + field.getValue() + "\n");
+        }
+        out.write("\n");
+        out.flush();
+        // However long the conversion takes.
+        channel.socket().setSoTimeout(0);
+        reply = in.readLine();
+      }
+      if (reply == null) {
+        throw new IOException("The daemon closed the connection without replying");
+      }
+      if (!ConversionDaemon.OK.equals(reply)) {
+        throw new IOException(reply.startsWith(ConversionDaemon.ERROR)
+            ? reply.substring(ConversionDaemon.ERROR.length())
+            : reply);
+      }
+      return true;
+    }
+  }
+
+  private static boolean isSingleLine(String... values) {
+    for (String value : values) {
+      if (value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,47 @@
+package com.adaptris.verify;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import com.adaptris.verify.report.sonar.Issue;
+
+/**
+ * Hands every issue on to several sinks, so that one pass over the report produces every output.
+ */
+class FanOutIssueSink implements IssueSink {
+
+  private final List<IssueSink> sinks;
+
+  FanOutIssueSink(List<IssueSink> sinks) {
+    this.sinks = new ArrayList<>(sinks);
+  }
+
+  @Override
+  public void write(Issue issue) throws IOException {
+    for (IssueSink sink : sinks) {
+      sink.write(issue);
+    }
+  }
+
+  /**
+   * Closes every sink, even if an earlier one fails; the first failure is thrown.
+   */
+  @Override
+  public void close() throws IOException {
+    IOException failure = null;
+    for (IssueSink sink : sinks) {
+      try {
+        sink.close();
+      } catch (IOException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+}
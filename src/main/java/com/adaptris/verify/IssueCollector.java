@@ -0,0 +1,108 @@
+package com.adaptris.verify;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.adaptris.verify.CreateVerifyReport.ArgumentWrapper;
+import com.adaptris.verify.report.sonar.Issue;
+import com.adaptris.verify.report.sonar.Severity;
+import com.adaptris.verify.report.sonar.Type;
+import com.fasterxml.jackson.core.JsonFactory;
+
+/**
+ * Turns report lines, or the events that would have been logged as report lines, into issues as they happen, so
+ * that a verify run can write the sonar issues itself instead of a report for a second JVM to convert.
+ * <p>
+ * Every line and event is numbered in the order it arrives, exactly as if it were the next line of the report, so
+ * the issues are the same as converting the report. It is safe to call from several threads: each line is numbered,
+ * classified and handed to the sink under one lock, so the sink sees the issues in the order they are numbered.
+ * </p>
+ * <pre>
+ * try (IssueCollector collector = new IssueCollector(IssueCollector.sonarWriter(out))) {
+ *   collector.line("BUG,MAJOR,Interlok Validation Error:broken");
+ *   collector.issue(Type.CODE_SMELL, Severity.INFO, "something");
+ * }
+ * </pre>
+ */
+public class IssueCollector implements Closeable {
+
+  private final LineClassifier classifier;
+  private final IssueSink sink;
+  private final AtomicInteger lines = new AtomicInteger();
+  private boolean closed;
+
+  /**
+   * Collect issues with the default engine id, rule id prefix and location file path.
+   */
+  public IssueCollector(IssueSink sink) {
+    this(CreateVerifyReport.ENGINE_ID_DEFAULT, CreateVerifyReport.RULE_ID_PREFIX_DEFAULT,
+        CreateVerifyReport.LOCATION_FILE_PATH_DEFAULT, sink);
+  }
+
+  /**
+   * @param sink where to send each issue; it is closed when the collector is closed.
+   */
+  public IssueCollector(String engineId, String ruleIdPrefix, String locationFilePath, IssueSink sink) {
+    classifier = new LineClassifier(new ArgumentWrapper(engineId, ruleIdPrefix, locationFilePath, null, null));
+    this.sink = sink;
+  }
+
+  /**
+   * A sink that writes the sonar generic issue format, pretty printed; closing it closes the stream.
+   */
+  public static IssueSink sonarWriter(OutputStream out) throws IOException {
+    return new SonarIssuesWriter(new JsonFactory(), out);
+  }
+
+  /**
+   * Collect a {@code TYPE,SEVERITY,message} report line; lines that are not issues are ignored.
+   *
+   * @return whether the line was an issue.
+   */
+  public boolean line(String line) throws IOException {
+    synchronized (sink) {
+      return write(classifier.classify(line, lines.incrementAndGet()));
+    }
+  }
+
+  /**
+   * Collect an issue, as the report line {@code type,severity,message} would be; except that a message with line
+   * breaks in it, such as one carrying an exception's cause, is kept whole and only its first line can name the rule.
+   */
+  public void issue(Type type, Severity severity, String message) throws IOException {
+    synchronized (sink) {
+      write(classifier.classify(type, severity, message, lines.incrementAndGet()));
+    }
+  }
+
+  /**
+   * @return the number of lines collected so far, counting {@link #issue} calls and lines that were not issues.
+   */
+  public int getLines() {
+    return lines.get();
+  }
+
+  // Only while holding the sink's lock.
+  private boolean write(Optional<Issue> issue) throws IOException {
+    if (!issue.isPresent()) {
+      return false;
+    }
+    if (closed) {
+      throw new IOException("Collector is closed");
+    }
+    sink.write(issue.get());
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (sink) {
+      if (!closed) {
+        closed = true;
+        sink.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package com.adaptris.verify;
+
+import java.io.Closeable;
+import java.io.IOException;
+import com.adaptris.verify.report.sonar.Issue;
+
+/**
+ * Somewhere to send issues as they are classified; closing the sink completes its output.
+ */
+public interface IssueSink extends Closeable {
+
+  void write(Issue issue) throws IOException;
+
+  /**
+   * Whether the sink needs no more issues, so that reading the report can stop early.
+   */
+  default boolean isComplete() {
+    return false;
+  }
+}
@@ -0,0 +1,228 @@
+package com.adaptris.verify;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import com.adaptris.verify.CreateVerifyReport.IssueHandler;
+import com.adaptris.verify.report.sonar.Issue;
+import com.adaptris.verify.report.sonar.Location;
+import com.adaptris.verify.report.sonar.TextRange;
+import com.fasterxml.jackson.core.JsonFactory;
+import lombok.AllArgsConstructor;
+
+/**
+ * Combines several sonar issue files into one, streaming them so that memory does not depend on their size.
+ * <p>
+ * Unsorted, the files are simply copied one after the other. Sorted (by file path, then rule id, then the rest of
+ * the issue), issues are sorted in runs of at most {@code runSize}; if everything fits in one run it is written
+ * straight out, otherwise each run is spilled to a temporary file and the runs are merged through a priority queue.
+ * At most {@code maxFanIn} runs are open at once; with more than that, groups of runs are merged into longer runs
+ * first, in as many passes as it takes.
+ * Removing duplicates needs the sort, since duplicates are only noticed when they are next to each other.
+ * </p>
+ */
+class IssuesMerger {
+
+  static final int DEFAULT_RUN_SIZE = 100_000;
+  static final int DEFAULT_MAX_FAN_IN = 64;
+
+  static final Comparator<Issue> ORDER = Comparator
+      .comparing((Issue i) -> location(i).getFilePath(), Comparator.nullsFirst(Comparator.naturalOrder()))
+      .thenComparing(Issue::getRuleId, Comparator.nullsFirst(Comparator.naturalOrder()))
+      .thenComparing(Issue::getSeverity, Comparator.nullsFirst(Comparator.naturalOrder()))
+      .thenComparing(Issue::getType, Comparator.nullsFirst(Comparator.naturalOrder()))
+      .thenComparing(Issue::getEngineId, Comparator.nullsFirst(Comparator.naturalOrder()))
+      .thenComparing(i -> location(i).getMessage(), Comparator.nullsFirst(Comparator.naturalOrder()))
+      .thenComparing(i -> textRange(i).getStartLine(), Comparator.nullsFirst(Comparator.naturalOrder()))
+      .thenComparing(i -> textRange(i).getEndLine(), Comparator.nullsFirst(Comparator.naturalOrder()))
+      .thenComparing(Issue::getEffortMinutes, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+  private static final Location NO_LOCATION = new Location();
+  private static final TextRange NO_TEXT_RANGE = new TextRange();
+
+  private final JsonFactory factory;
+  private final int runSize;
+  private final int maxFanIn;
+
+  IssuesMerger(JsonFactory factory) {
+    this(factory, DEFAULT_RUN_SIZE);
+  }
+
+  IssuesMerger(JsonFactory factory, int runSize) {
+    this(factory, runSize, DEFAULT_MAX_FAN_IN);
+  }
+
+  IssuesMerger(JsonFactory factory, int runSize, int maxFanIn) {
+    this.factory = factory;
+    this.runSize = Math.max(1, runSize);
+    this.maxFanIn = Math.max(2, maxFanIn);
+  }
+
+  /**
+   * @param dedupe leave out issues that are identical to one already written; implies {@code sort}.
+   */
+  void merge(List<Path> inputs, boolean sort, boolean dedupe, IssueSink sink) throws IOException {
+    if (!sort && !dedupe) {
+      for (Path input : inputs) {
+        try (SonarIssuesReader reader = open(input)) {
+          Issue issue;
+          while ((issue = reader.next()) != null) {
+            sink.write(issue);
+          }
+        }
+      }
+      return;
+    }
+    List<Path> runs = new ArrayList<>();
+    try {
+      List<Issue> run = new ArrayList<>();
+      for (Path input : inputs) {
+        try (SonarIssuesReader reader = open(input)) {
+          Issue issue;
+          while ((issue = reader.next()) != null) {
+            run.add(issue);
+            if (run.size() == runSize) {
+              runs.add(spill(run));
+              run.clear();
+            }
+          }
+        }
+      }
+      DedupingWriter output = new DedupingWriter(sink, dedupe);
+      if (runs.isEmpty()) {
+        run.sort(ORDER);
+        for (Issue issue : run) {
+          output.write(issue);
+        }
+      } else {
+        if (!run.isEmpty()) {
+          runs.add(spill(run));
+          run.clear();
+        }
+        mergeRuns(runs, output);
+      }
+    } finally {
+      for (Path spilled : runs) {
+        Files.deleteIfExists(spilled);
+      }
+    }
+  }
+
+  private Path spill(List<Issue> run) throws IOException {
+    run.sort(ORDER);
+    Path spilled = createRun();
+    try (SonarIssuesWriter writer = new SonarIssuesWriter(factory, Files.newOutputStream(spilled), false, false)) {
+      for (Issue issue : run) {
+        writer.write(issue);
+      }
+    } catch (IOException e) {
+      Files.deleteIfExists(spilled);
+      throw e;
+    }
+    return spilled;
+  }
+
+  private static Path createRun() throws IOException {
+    return Files.createTempFile("interlok-verify-merge", ".json");
+  }
+
+  /**
+   * @param runs every spilled run; the longer runs from any intermediate passes are added, so that they are deleted
+   *          with the rest.
+   */
+  private void mergeRuns(List<Path> runs, DedupingWriter output) throws IOException {
+    List<Path> pass = new ArrayList<>(runs);
+    while (pass.size() > maxFanIn) {
+      List<Path> next = new ArrayList<>();
+      for (int i = 0; i < pass.size(); i += maxFanIn) {
+        List<Path> group = pass.subList(i, Math.min(pass.size(), i + maxFanIn));
+        if (group.size() == 1) {
+          next.add(group.get(0));
+          continue;
+        }
+        Path merged = createRun();
+        runs.add(merged);
+        try (SonarIssuesWriter writer = new SonarIssuesWriter(factory, Files.newOutputStream(merged), false, false)) {
+          mergeGroup(group, writer::write);
+        }
+        for (Path run : group) {
+          Files.deleteIfExists(run);
+        }
+        next.add(merged);
+      }
+      pass = next;
+    }
+    mergeGroup(pass, output::write);
+  }
+
+  private void mergeGroup(List<Path> runs, IssueHandler output) throws IOException {
+    PriorityQueue<Head> heads = new PriorityQueue<>(runs.size(),
+        Comparator.comparing((Head h) -> h.issue, ORDER).thenComparingInt(h -> h.run));
+    List<SonarIssuesReader> readers = new ArrayList<>(runs.size());
+    try {
+      for (int i = 0; i < runs.size(); i++) {
+        SonarIssuesReader reader = open(runs.get(i));
+        readers.add(reader);
+        Issue first = reader.next();
+        if (first != null) {
+          heads.add(new Head(i, reader, first));
+        }
+      }
+      Head head;
+      while ((head = heads.poll()) != null) {
+        output.handle(head.issue);
+        head.issue = head.reader.next();
+        if (head.issue != null) {
+          heads.add(head);
+        }
+      }
+    } finally {
+      for (SonarIssuesReader reader : readers) {
+        reader.close();
+      }
+    }
+  }
+
+  private SonarIssuesReader open(Path input) throws IOException {
+    return new SonarIssuesReader(factory, CompressedStreams.decompress(Files.newInputStream(input)));
+  }
+
+  private static Location location(Issue issue) {
+    return issue.getPrimaryLocation() != null ? issue.getPrimaryLocation() : NO_LOCATION;
+  }
+
+  private static TextRange textRange(Issue issue) {
+    TextRange textRange = location(issue).getTextRange();
+    return textRange != null ? textRange : NO_TEXT_RANGE;
+  }
+
+  @AllArgsConstructor
+  private static class Head {
+    private final int run;
+    private final SonarIssuesReader reader;
+    private Issue issue;
+  }
+
+  private static class DedupingWriter {
+    private final IssueSink sink;
+    private final boolean dedupe;
+    private Issue last;
+
+    DedupingWriter(IssueSink sink, boolean dedupe) {
+      this.sink = sink;
+      this.dedupe = dedupe;
+    }
+
+    void write(Issue issue) throws IOException {
+      if (dedupe && last != null && ORDER.compare(last, issue) == 0) {
+        return;
+      }
+      sink.write(issue);
+      last = issue;
+    }
+  }
+}
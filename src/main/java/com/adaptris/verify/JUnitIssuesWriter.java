@@ -0,0 +1,119 @@
+package com.adaptris.verify;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import com.adaptris.verify.report.sonar.Issue;
+import com.adaptris.verify.report.sonar.Location;
+import com.adaptris.verify.report.sonar.TextRange;
+
+/**
+ * Writes issues as a JUnit XML test suite, where every issue is a failed test case, one at a time.
+ * <p>
+ * The {@code tests} and {@code failures} counts are left off the {@code testsuite} element since they are not known
+ * until the end; Jenkins counts the test cases itself.
+ * </p>
+ */
+class JUnitIssuesWriter implements IssueSink {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final OutputStream out;
+  private final XMLStreamWriter writer;
+  private final boolean flushEachIssue;
+
+  /**
+   * @param suiteName the name of the test suite, which is the engine id.
+   * @param flushEachIssue flush after every issue, for when the output is a pipe that is read as it is written.
+   */
+  JUnitIssuesWriter(OutputStream out, String suiteName, boolean flushEachIssue) throws IOException {
+    // The stream writer does not buffer, it writes every start tag, attribute and text node as it goes.
+    this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+    this.flushEachIssue = flushEachIssue;
+    try {
+      writer = XMLOutputFactory.newFactory().createXMLStreamWriter(this.out, StandardCharsets.UTF_8.name());
+      writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+      writer.writeCharacters("\n");
+      writer.writeStartElement("testsuites");
+      writer.writeCharacters("\n");
+      writer.writeStartElement("testsuite");
+      writer.writeAttribute("name", xmlText(suiteName));
+      writer.writeCharacters("\n");
+    } catch (XMLStreamException e) {
+      throw new IOException(e);
+    }
+  }
+
+  @Override
+  public void write(Issue issue) throws IOException {
+    Location location = issue.getPrimaryLocation();
+    String message = location != null && location.getMessage() != null ? location.getMessage() : "";
+    try {
+      writer.writeCharacters("  ");
+      writer.writeStartElement("testcase");
+      writer.writeAttribute("classname", xmlText(issue.getRuleId() != null ? issue.getRuleId() : ""));
+      writer.writeAttribute("name", xmlText(message));
+      writer.writeStartElement("failure");
+      writer.writeAttribute("type", issue.getType() != null ? issue.getType().name() : "");
+      writer.writeAttribute("message", xmlText(
+          issue.getSeverity() != null ? issue.getSeverity().name() + ": " + message : message));
+      if (location != null && location.getFilePath() != null) {
+        writer.writeCharacters(xmlText(position(location)));
+      }
+      writer.writeEndElement();
+      writer.writeEndElement();
+      writer.writeCharacters("\n");
+      if (flushEachIssue) {
+        writer.flush();
+        out.flush();
+      }
+    } catch (XMLStreamException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static String position(Location location) {
+    TextRange textRange = location.getTextRange();
+    if (textRange == null || textRange.getStartLine() == null) {
+      return location.getFilePath();
+    }
+    return location.getFilePath() + ":" + textRange.getStartLine();
+  }
+
+  // Characters that XML 1.0 cannot represent at all, even escaped, are replaced.
+  static String xmlText(String text) {
+    StringBuilder replaced = null;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      boolean valid = c == '\t' || c == '\n' || c == '\r' || c >= 0x20 && c <= 0xFFFD;
+      if (!valid && replaced == null) {
+        replaced = new StringBuilder(text.length()).append(text, 0, i);
+      }
+      if (replaced != null) {
+        replaced.append(valid ? c : '\uFFFD');
+      }
+    }
+    return replaced != null ? replaced.toString() : text;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      writer.writeEndElement();
+      writer.writeCharacters("\n");
+      writer.writeEndElement();
+      writer.writeCharacters("\n");
+      writer.writeEndDocument();
+      writer.close();
+    } catch (XMLStreamException e) {
+      throw new IOException(e);
+    } finally {
+      // XMLStreamWriter.close does not close the stream underneath; closing the buffer flushes it.
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,263 @@
+package com.adaptris.verify;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import com.adaptris.verify.CreateVerifyReport.ArgumentWrapper;
+import com.adaptris.verify.report.sonar.Issue;
+import com.adaptris.verify.report.sonar.Location;
+import com.adaptris.verify.report.sonar.Severity;
+import com.adaptris.verify.report.sonar.Type;
+
+/**
+ * Turns a single {@code TYPE,SEVERITY,message} report line into an {@link Issue}.
+ * <p>
+ * Lines are parsed in one forward scan; the regular expressions are only used for the rare lines that the scan
+ * cannot decide on its own (a message that contains a line terminator character), so the result is always the
+ * same as matching the line against both expressions.
+ * </p>
+ * <p>
+ * A report only has a handful of distinct rules, so normalized rule ids are cached and shared. When the issues are
+ * going to be kept in memory, {@code shareInstances} also shares one {@link Location} per distinct message and one
+ * {@link Issue} per distinct rule style line, so memory grows with the number of distinct messages rather than the
+ * number of lines. Streaming callers leave it off since they hold no issues for the cache to save.
+ * </p>
+ */
+class LineClassifier {
+
+  private static final Type[] TYPES = Type.values();
+  private static final Severity[] SEVERITIES = Severity.values();
+
+  private static final int MAX_CACHED_RULE_IDS = 1024;
+  private static final ConcurrentMap<String, String> RULE_IDS = new ConcurrentHashMap<>();
+
+  private final String engineId;
+  private final String ruleIdPrefix;
+  private final String filePath;
+  private final LocationIndex locationIndex;
+  private final ConcurrentMap<String, Location> locations;
+  private final ConcurrentMap<String, Issue> ruleIssues;
+  private final ConversionStats stats;
+  private final RuleCatalogue catalogue;
+
+  LineClassifier(ArgumentWrapper argumentWrapper) {
+    this(argumentWrapper, false, null);
+  }
+
+  LineClassifier(ArgumentWrapper argumentWrapper, boolean shareInstances, LocationIndex locationIndex) {
+    this(argumentWrapper, shareInstances, locationIndex, null, null);
+  }
+
+  /**
+   * @param catalogue rule ids for messages that take precedence over the rule in the message, or null.
+   * @param stats where to record what each line turned into, or null.
+   */
+  LineClassifier(ArgumentWrapper argumentWrapper, boolean shareInstances, LocationIndex locationIndex,
+      RuleCatalogue catalogue, ConversionStats stats) {
+    engineId = argumentWrapper.getEngineId().intern();
+    ruleIdPrefix = argumentWrapper.getRuleIdPrefix();
+    filePath = argumentWrapper.getLocationFilePath().intern();
+    this.locationIndex = locationIndex;
+    locations = shareInstances ? new ConcurrentHashMap<>() : null;
+    ruleIssues = shareInstances ? new ConcurrentHashMap<>() : null;
+    this.catalogue = catalogue;
+    this.stats = stats;
+  }
+
+  /**
+   * Forget the shared instances, for a caller that has dropped every issue holding them.
+   */
+  void clearSharedInstances() {
+    if (locations != null) {
+      locations.clear();
+      ruleIssues.clear();
+    }
+  }
+
+  Optional<Issue> classify(String line, int count) {
+    if (stats == null) {
+      return classifyLine(line, count);
+    }
+    long started = System.nanoTime();
+    Optional<Issue> issue = classifyLine(line, count);
+    stats.time(ConversionStats.Phase.CLASSIFY, System.nanoTime() - started);
+    stats.lineRead();
+    return issue;
+  }
+
+  private Optional<Issue> classifyLine(String line, int count) {
+    int typeEnd = line.indexOf(',');
+    Type type = typeEnd > 0 ? type(line, typeEnd) : null;
+    if (type == null) {
+      return dropped();
+    }
+    int severityStart = typeEnd + 1;
+    int severityEnd = line.indexOf(',', severityStart);
+    Severity severity = severityEnd > severityStart ? severity(line, severityStart, severityEnd) : null;
+    if (severity == null) {
+      return dropped();
+    }
+    int messageStart = severityEnd + 1;
+    int ruleEnd = -1;
+    for (int i = messageStart; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (ReportLineReader.isTerminator(c)) {
+        return Fallback.classify(this, line, count);
+      }
+      if (c == ':' && ruleEnd < 0) {
+        ruleEnd = i;
+      }
+    }
+    if (ruleEnd > messageStart) {
+      Issue shared = ruleIssues != null ? ruleIssues.get(line) : null;
+      if (shared == null) {
+        shared = ruleIssue(line.substring(messageStart, ruleEnd), severity, type, line.substring(messageStart));
+        if (ruleIssues != null) {
+          ruleIssues.putIfAbsent(line, shared);
+        }
+      }
+      return matchedRule(shared);
+    }
+    return matchedMessage(messageIssue(count, severity, type, line.substring(messageStart)));
+  }
+
+  /**
+   * Classify an event that already has its type and severity, rather than a report line. The rule is whatever comes
+   * before the first colon of the message's first line; without one the message is numbered like a message line.
+   */
+  Optional<Issue> classify(Type type, Severity severity, String message, int count) {
+    int ruleEnd = -1;
+    for (int i = 0; i < message.length() && ruleEnd < 0; i++) {
+      char c = message.charAt(i);
+      if (ReportLineReader.isTerminator(c)) {
+        break;
+      }
+      if (c == ':') {
+        ruleEnd = i;
+      }
+    }
+    if (ruleEnd > 0) {
+      return matchedRule(ruleIssue(message.substring(0, ruleEnd), severity, type, message));
+    }
+    return matchedMessage(messageIssue(count, severity, type, message));
+  }
+
+  private Optional<Issue> matchedRule(Issue issue) {
+    if (stats != null) {
+      stats.ruleLine();
+    }
+    return Optional.of(issue);
+  }
+
+  private Optional<Issue> matchedMessage(Issue issue) {
+    if (stats != null) {
+      stats.messageLine();
+    }
+    return Optional.of(issue);
+  }
+
+  private Optional<Issue> dropped() {
+    if (stats != null) {
+      stats.droppedLine();
+    }
+    return Optional.empty();
+  }
+
+  private Issue ruleIssue(String rule, Severity severity, Type type, String message) {
+    Issue catalogued = cataloguedIssue(severity, type, message);
+    return catalogued != null ? catalogued : new Issue(engineId, ruleId(rule), severity, type, location(message));
+  }
+
+  private Issue messageIssue(int count, Severity severity, Type type, String message) {
+    Issue catalogued = cataloguedIssue(severity, type, message);
+    return catalogued != null ? catalogued : new Issue(engineId, ruleIdPrefix + count, severity, type, location(message));
+  }
+
+  private Issue cataloguedIssue(Severity severity, Type type, String message) {
+    RuleCatalogue.Rule rule = catalogue != null ? catalogue.match(message) : null;
+    if (rule == null) {
+      return null;
+    }
+    return new Issue(engineId, rule.getId(), rule.getSeverity() != null ? rule.getSeverity() : severity,
+        rule.getType() != null ? rule.getType() : type, location(message));
+  }
+
+  private Location location(String message) {
+    if (locations == null) {
+      return newLocation(message);
+    }
+    return locations.computeIfAbsent(message, this::newLocation);
+  }
+
+  private Location newLocation(String message) {
+    return new Location(message, filePath, locationIndex != null ? locationIndex.resolve(message) : null);
+  }
+
+  static String ruleId(String rule) {
+    String ruleId = RULE_IDS.get(rule);
+    if (ruleId == null) {
+      ruleId = rule.replace(" ", "_").toLowerCase();
+      if (RULE_IDS.size() < MAX_CACHED_RULE_IDS) {
+        RULE_IDS.putIfAbsent(rule, ruleId);
+      }
+    }
+    return ruleId;
+  }
+
+  private static Type type(String line, int end) {
+    for (Type type : TYPES) {
+      String name = type.name();
+      if (name.length() == end && line.startsWith(name)) {
+        return type;
+      }
+    }
+    return null;
+  }
+
+  private static Severity severity(String line, int start, int end) {
+    for (Severity severity : SEVERITIES) {
+      String name = severity.name();
+      if (name.length() == end - start && line.startsWith(name, start)) {
+        return severity;
+      }
+    }
+    return null;
+  }
+
+  // Only loaded (and the patterns compiled) when a line actually needs it.
+  private static class Fallback {
+
+    private static final String REGEX_TYPES =
+        Arrays.stream(Type.values()).map(Object::toString).collect(Collectors.joining("|"));
+    private static final String REGEX_SEVERITIES =
+        Arrays.stream(Severity.values()).map(Object::toString).collect(Collectors.joining("|"));
+
+    private static final String REGEX_RULES = "^(?<type>" + REGEX_TYPES + "),(?<severity>"
+        + REGEX_SEVERITIES + "),(?<message>(?<rule>[^:]+):.*)$";
+
+    private static final String REGEX_MESSAGE_ONLY =
+        "^(?<type>" + REGEX_TYPES + "),(?<severity>" + REGEX_SEVERITIES + "),(?<message>.*)$";
+
+    private static final Pattern RULE_PATTERN = Pattern.compile(REGEX_RULES);
+    private static final Pattern MESSAGE_PATTERN = Pattern.compile(REGEX_MESSAGE_ONLY);
+
+    static Optional<Issue> classify(LineClassifier classifier, String line, int count) {
+      Matcher ruleMatcher = RULE_PATTERN.matcher(line);
+      if (ruleMatcher.matches()) {
+        return classifier.matchedRule(classifier.ruleIssue(ruleMatcher.group("rule"),
+            Severity.valueOf(ruleMatcher.group("severity")), Type.valueOf(ruleMatcher.group("type")),
+            ruleMatcher.group("message")));
+      }
+      Matcher msgMatcher = MESSAGE_PATTERN.matcher(line);
+      if (msgMatcher.matches()) {
+        return classifier.matchedMessage(classifier.messageIssue(count, Severity.valueOf(msgMatcher.group("severity")),
+            Type.valueOf(msgMatcher.group("type")), msgMatcher.group("message")));
+      }
+      return classifier.dropped();
+    }
+  }
+}
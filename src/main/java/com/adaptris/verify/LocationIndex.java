@@ -0,0 +1,119 @@
+package com.adaptris.verify;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import com.adaptris.verify.report.sonar.TextRange;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * An index from component {@code unique-id} to the lines of the component in the adapter configuration.
+ * <p>
+ * The configuration is read once with a StAX reader; resolving an issue is then a single map lookup on the id
+ * named in its message, e.g. {@code [PayloadFromMetadataService(set-payload)] is a ...}.
+ * </p>
+ */
+class LocationIndex {
+
+  private static final String UNIQUE_ID = "unique-id";
+
+  private final Map<String, TextRange> ranges;
+
+  private LocationIndex(Map<String, TextRange> ranges) {
+    this.ranges = ranges;
+  }
+
+  static LocationIndex build(Path adapterXml) throws IOException {
+    XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    Map<String, TextRange> ranges = new HashMap<>();
+    try (InputStream in = Files.newInputStream(adapterXml)) {
+      XMLStreamReader reader = factory.createXMLStreamReader(in);
+      try {
+        index(reader, ranges);
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException e) {
+      throw new IOException("Unable to index " + adapterXml + ": " + e.getMessage(), e);
+    }
+    return new LocationIndex(ranges);
+  }
+
+  private static void index(XMLStreamReader reader, Map<String, TextRange> ranges) throws XMLStreamException {
+    Deque<Element> elements = new ArrayDeque<>();
+    StringBuilder uniqueId = null;
+    while (reader.hasNext()) {
+      switch (reader.next()) {
+        case XMLStreamConstants.START_ELEMENT:
+          elements.push(new Element(reader.getLocation().getLineNumber()));
+          if (UNIQUE_ID.equals(reader.getLocalName())) {
+            uniqueId = new StringBuilder();
+          }
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+          if (uniqueId != null) {
+            uniqueId.append(reader.getText());
+          }
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          Element element = elements.pop();
+          if (uniqueId != null) {
+            // The unique-id belongs to the enclosing element.
+            if (!elements.isEmpty()) {
+              elements.peek().id = uniqueId.toString().trim();
+            }
+            uniqueId = null;
+          } else if (element.id != null && !element.id.isEmpty()) {
+            ranges.putIfAbsent(element.id, new TextRange(element.startLine, reader.getLocation().getLineNumber()));
+          }
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  /**
+   * The range of the component named in the message, or null if it does not name one that is in the index.
+   */
+  TextRange resolve(String message) {
+    int open = message.indexOf('[');
+    while (open >= 0) {
+      int close = message.indexOf(")]", open);
+      if (close < 0) {
+        return null;
+      }
+      int idStart = message.lastIndexOf('(', close);
+      if (idStart > open) {
+        TextRange range = ranges.get(message.substring(idStart + 1, close));
+        if (range != null) {
+          return range;
+        }
+      }
+      open = message.indexOf('[', open + 1);
+    }
+    return null;
+  }
+
+  int size() {
+    return ranges.size();
+  }
+
+  @RequiredArgsConstructor
+  private static class Element {
+    private final int startLine;
+    private String id;
+  }
+}
@@ -0,0 +1,22 @@
+package com.adaptris.verify;
+
+/**
+ * The formats that issues can be written in, selected with {@code --format}.
+ */
+enum OutputFormat {
+  /** The sonar generic issue format. */
+  SONAR,
+  /** SARIF 2.1.0, for GitHub code scanning. */
+  SARIF,
+  /** JUnit XML, for Jenkins. */
+  JUNIT;
+
+  static OutputFormat forName(String name) {
+    for (OutputFormat format : values()) {
+      if (format.name().equalsIgnoreCase(name)) {
+        return format;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,246 @@
+package com.adaptris.verify;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import com.adaptris.verify.CreateVerifyReport.IssueHandler;
+import com.adaptris.verify.report.sonar.Issue;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Parses a report by memory mapping it and classifying newline aligned chunks in parallel.
+ * <p>
+ * Line numbers are global (they feed the {@code ruleIdPrefix + count} rule ids) so the chunks are first counted,
+ * which is a cheap scan over the raw bytes, and each chunk is then parsed knowing its starting line. Issues are
+ * handed on in file order; only a bounded window of chunks is in flight at any one time.
+ * </p>
+ */
+class ParallelReportParser {
+
+  static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+  private final int parallelism;
+  private final int chunkSize;
+  private final ConversionStats stats;
+
+  ParallelReportParser(int parallelism) {
+    this(parallelism, DEFAULT_CHUNK_SIZE);
+  }
+
+  ParallelReportParser(int parallelism, int chunkSize) {
+    this(parallelism, chunkSize, null);
+  }
+
+  /**
+   * @param stats where to record the time spent counting and decoding chunks, or null.
+   */
+  ParallelReportParser(int parallelism, int chunkSize, ConversionStats stats) {
+    this.parallelism = Math.max(1, parallelism);
+    this.chunkSize = Math.max(1, chunkSize);
+    this.stats = stats;
+  }
+
+  void parse(Path report, LineClassifier classifier, IssueHandler handler) throws IOException {
+    try (FileChannel channel = FileChannel.open(report, StandardOpenOption.READ)) {
+      parse(channel, classifier, handler);
+    }
+  }
+
+  void parse(FileChannel channel, LineClassifier classifier, IssueHandler handler) throws IOException {
+    List<Chunk> chunks = split(channel);
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      countLines(pool, channel, chunks);
+      parseChunks(pool, channel, chunks, classifier, handler);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  List<Chunk> split(FileChannel channel) throws IOException {
+    List<Chunk> chunks = new ArrayList<>();
+    long size = channel.size();
+    long start = 0;
+    ByteBuffer scratch = ByteBuffer.allocate(8192);
+    while (start < size) {
+      long end = start + chunkSize < size ? nextLineStart(channel, start + chunkSize, size, scratch) : size;
+      if (end - start > Integer.MAX_VALUE) {
+        throw new IOException("Line starting near offset " + start + " is too long to map");
+      }
+      chunks.add(new Chunk(start, (int) (end - start)));
+      start = end;
+    }
+    return chunks;
+  }
+
+  // The position just after the first '\n' at or after from, or the end of the file.
+  private static long nextLineStart(FileChannel channel, long from, long size, ByteBuffer scratch)
+      throws IOException {
+    long position = from;
+    while (position < size) {
+      scratch.clear();
+      int read = channel.read(scratch, position);
+      if (read < 0) {
+        break;
+      }
+      for (int i = 0; i < read; i++) {
+        if (scratch.get(i) == '\n') {
+          return position + i + 1;
+        }
+      }
+      position += read;
+    }
+    return size;
+  }
+
+  private void countLines(ForkJoinPool pool, FileChannel channel, List<Chunk> chunks) throws IOException {
+    List<ForkJoinTask<Integer>> counts = new ArrayList<>(chunks.size());
+    for (Chunk chunk : chunks) {
+      counts.add(pool.submit(() -> {
+        long started = System.nanoTime();
+        int lines = countLines(chunk.map(channel));
+        if (stats != null) {
+          stats.time(ConversionStats.Phase.READ, System.nanoTime() - started);
+        }
+        return lines;
+      }));
+    }
+    int firstLine = 1;
+    for (int i = 0; i < chunks.size(); i++) {
+      chunks.get(i).firstLine = firstLine;
+      firstLine += join(counts.get(i));
+    }
+  }
+
+  private void parseChunks(ForkJoinPool pool, FileChannel channel, List<Chunk> chunks, LineClassifier classifier,
+      IssueHandler handler) throws IOException {
+    int window = parallelism * 2;
+    Deque<ForkJoinTask<List<Issue>>> inFlight = new ArrayDeque<>(window);
+    int next = 0;
+    while ((next < chunks.size() || !inFlight.isEmpty()) && !handler.isComplete()) {
+      while (next < chunks.size() && inFlight.size() < window) {
+        Chunk chunk = chunks.get(next++);
+        inFlight.add(pool.submit(() -> parseChunk(chunk, channel, classifier, stats)));
+      }
+      for (Issue issue : join(inFlight.poll())) {
+        if (handler.isComplete()) {
+          break;
+        }
+        handler.handle(issue);
+      }
+    }
+  }
+
+  private static List<Issue> parseChunk(Chunk chunk, FileChannel channel, LineClassifier classifier,
+      ConversionStats stats) {
+    try {
+      long started = System.nanoTime();
+      CharBuffer chars = decoder().decode(chunk.map(channel));
+      if (stats != null) {
+        stats.time(ConversionStats.Phase.READ, System.nanoTime() - started);
+      }
+      List<Issue> issues = new ArrayList<>();
+      ReportLineReader reader = new ReportLineReader(chars.array(), chars.arrayOffset() + chars.position(),
+          chars.remaining());
+      int count = chunk.firstLine;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        Optional<Issue> issue = classifier.classify(line, count++);
+        issue.ifPresent(issues::add);
+      }
+      return issues;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Count lines in the raw UTF-8 bytes, using the same terminators (and the same rules about a trailing partial
+   * line) as {@link ReportLineReader}.
+   */
+  static int countLines(ByteBuffer bytes) {
+    int lines = 0;
+    boolean partial = false;
+    int limit = bytes.limit();
+    for (int i = bytes.position(); i < limit; i++) {
+      byte b = bytes.get(i);
+      if (b == '\n') {
+        lines++;
+        partial = false;
+      } else if (b == '\r') {
+        lines++;
+        partial = false;
+        if (i + 1 < limit && bytes.get(i + 1) == '\n') {
+          i++;
+        }
+      } else if (b == (byte) 0xC2 && i + 1 < limit && bytes.get(i + 1) == (byte) 0x85) {
+        // U+0085
+        lines++;
+        partial = false;
+        i++;
+      } else if (b == (byte) 0xE2 && i + 2 < limit && bytes.get(i + 1) == (byte) 0x80
+          && (bytes.get(i + 2) == (byte) 0xA8 || bytes.get(i + 2) == (byte) 0xA9)) {
+        // U+2028 and U+2029
+        lines++;
+        partial = false;
+        i += 2;
+      } else {
+        partial = true;
+      }
+    }
+    return partial ? lines + 1 : lines;
+  }
+
+  static CharsetDecoder decoder() {
+    return StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  }
+
+  private static <T> T join(ForkJoinTask<T> task) throws IOException {
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) e.getCause()).getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  @RequiredArgsConstructor
+  static class Chunk {
+    @Getter
+    private final long offset;
+    @Getter
+    private final int length;
+    private int firstLine;
+
+    MappedByteBuffer map(FileChannel channel) {
+      try {
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package com.adaptris.verify;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import com.adaptris.verify.CreateVerifyReport.IssueHandler;
+import com.adaptris.verify.report.sonar.Issue;
+
+/**
+ * Parses a report streamed through a {@link ReportLineReader} (stdin, a compressed report) with reading,
+ * classifying and writing overlapped.
+ * <p>
+ * A reader thread reads batches of lines and hands each batch to a pool of workers to classify; the calling thread
+ * hands on the issues of each batch in the order the batches were read, so the output is the same as parsing
+ * sequentially. Only a bounded number of batches are in flight, so the reader waits when the writer falls behind.
+ * </p>
+ */
+class PipelinedReportParser {
+
+  static final int DEFAULT_BATCH_SIZE = 1024;
+
+  // Marks the end of the report in the queue of batches.
+  private static final Future<List<Issue>> END = CompletableFuture.completedFuture(null);
+
+  private final int workers;
+  private final int batchSize;
+  private final ConversionStats stats;
+
+  PipelinedReportParser(int workers) {
+    this(workers, DEFAULT_BATCH_SIZE, null);
+  }
+
+  /**
+   * @param stats where to record the time spent reading, or null.
+   */
+  PipelinedReportParser(int workers, int batchSize, ConversionStats stats) {
+    this.workers = Math.max(1, workers);
+    this.batchSize = Math.max(1, batchSize);
+    this.stats = stats;
+  }
+
+  void parse(ReportLineReader reader, LineClassifier classifier, IssueHandler handler) throws IOException {
+    ExecutorService pool = Executors.newFixedThreadPool(workers);
+    BlockingQueue<Future<List<Issue>>> batches = new ArrayBlockingQueue<>(workers * 2);
+    Thread readerThread = new Thread(() -> read(reader, classifier, pool, batches), "report-reader");
+    readerThread.setDaemon(true);
+    readerThread.start();
+    try {
+      Future<List<Issue>> batch;
+      while (!handler.isComplete() && (batch = batches.take()) != END) {
+        for (Issue issue : join(batch)) {
+          if (handler.isComplete()) {
+            break;
+          }
+          handler.handle(issue);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } finally {
+      // Stops a reader that is still waiting for room in the queue, before the report is closed under it.
+      readerThread.interrupt();
+      pool.shutdownNow();
+      joinUninterruptibly(readerThread);
+    }
+  }
+
+  private void read(ReportLineReader reader, LineClassifier classifier, ExecutorService pool,
+      BlockingQueue<Future<List<Issue>>> batches) {
+    try {
+      int firstLine = 1;
+      List<String> lines = new ArrayList<>(batchSize);
+      String line;
+      while (!Thread.currentThread().isInterrupted() && (line = readLine(reader)) != null) {
+        lines.add(line);
+        if (lines.size() == batchSize) {
+          batches.put(submit(pool, classifier, lines, firstLine));
+          firstLine += lines.size();
+          lines = new ArrayList<>(batchSize);
+        }
+      }
+      if (!lines.isEmpty()) {
+        batches.put(submit(pool, classifier, lines, firstLine));
+      }
+      batches.put(END);
+    } catch (IOException e) {
+      fail(batches, new UncheckedIOException(e));
+    } catch (RuntimeException e) {
+      fail(batches, e);
+    } catch (InterruptedException e) {
+      // The writer has stopped.
+    }
+  }
+
+  // Queued like any other batch, so the writer fails once it has handed on everything read before the failure.
+  private static void fail(BlockingQueue<Future<List<Issue>>> batches, RuntimeException failure) {
+    CompletableFuture<List<Issue>> failed = new CompletableFuture<>();
+    failed.completeExceptionally(failure);
+    try {
+      batches.put(failed);
+    } catch (InterruptedException e) {
+      // The writer has stopped.
+    }
+  }
+
+  private static Future<List<Issue>> submit(ExecutorService pool, LineClassifier classifier, List<String> lines,
+      int firstLine) {
+    return pool.submit(() -> {
+      List<Issue> issues = new ArrayList<>();
+      int count = firstLine;
+      for (String line : lines) {
+        Optional<Issue> issue = classifier.classify(line, count++);
+        issue.ifPresent(issues::add);
+      }
+      return issues;
+    });
+  }
+
+  private String readLine(ReportLineReader reader) throws IOException {
+    if (stats == null) {
+      return reader.readLine();
+    }
+    long started = System.nanoTime();
+    String line = reader.readLine();
+    stats.time(ConversionStats.Phase.READ, System.nanoTime() - started);
+    return line;
+  }
+
+  private static List<Issue> join(Future<List<Issue>> batch) throws IOException, InterruptedException {
+    try {
+      return batch.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) e.getCause()).getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  private static void joinUninterruptibly(Thread thread) {
+    boolean interrupted = false;
+    while (thread.isAlive()) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package com.adaptris.verify;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import com.adaptris.verify.report.sonar.Issue;
+import com.adaptris.verify.report.sonar.Severity;
+import com.adaptris.verify.report.sonar.Type;
+
+/**
+ * Fails the conversion once there are at least a given number of issues of a severity or type, e.g.
+ * {@code BLOCKER:1,CRITICAL:10,BUG:5}.
+ * <p>
+ * Issues are counted as they pass through to the outputs. In gate only mode there are no outputs, and the gate is
+ * complete as soon as any threshold is reached, so the rest of the report is not read.
+ * </p>
+ */
+class QualityGate {
+
+  private final boolean stopWhenFailed;
+  private final Map<Severity, Integer> severityThresholds = new EnumMap<>(Severity.class);
+  private final Map<Type, Integer> typeThresholds = new EnumMap<>(Type.class);
+  private final Map<Severity, Integer> severityCounts = new EnumMap<>(Severity.class);
+  private final Map<Type, Integer> typeCounts = new EnumMap<>(Type.class);
+  private boolean failed;
+
+  /**
+   * @param thresholds comma separated {@code SEVERITY:count} or {@code TYPE:count}.
+   * @param stopWhenFailed be complete as soon as a threshold is reached.
+   * @throws IllegalArgumentException if the thresholds are not valid.
+   */
+  QualityGate(String thresholds, boolean stopWhenFailed) {
+    this.stopWhenFailed = stopWhenFailed;
+    for (String threshold : thresholds.split(",")) {
+      String[] parts = threshold.trim().split(":");
+      if (parts.length != 2) {
+        throw new IllegalArgumentException("Expected SEVERITY:count or TYPE:count, not " + threshold);
+      }
+      int count = count(parts[1].trim());
+      String name = parts[0].trim();
+      if (isSeverity(name)) {
+        severityThresholds.put(Severity.valueOf(name), count);
+      } else if (isType(name)) {
+        typeThresholds.put(Type.valueOf(name), count);
+      } else {
+        throw new IllegalArgumentException("Unknown severity or type " + name);
+      }
+    }
+  }
+
+  void count(Issue issue) {
+    Severity severity = issue.getSeverity();
+    if (severity != null && severityThresholds.containsKey(severity)) {
+      failed |= severityCounts.merge(severity, 1, Integer::sum) >= severityThresholds.get(severity);
+    }
+    Type type = issue.getType();
+    if (type != null && typeThresholds.containsKey(type)) {
+      failed |= typeCounts.merge(type, 1, Integer::sum) >= typeThresholds.get(type);
+    }
+  }
+
+  /**
+   * Count the issues written to a sink, which is then complete as soon as the gate fails, if it stops when failed.
+   */
+  IssueSink counting(IssueSink delegate) {
+    return new IssueSink() {
+      @Override
+      public void write(Issue issue) throws IOException {
+        count(issue);
+        delegate.write(issue);
+      }
+
+      @Override
+      public boolean isComplete() {
+        return stopWhenFailed && failed || delegate.isComplete();
+      }
+
+      @Override
+      public void close() throws IOException {
+        delegate.close();
+      }
+    };
+  }
+
+  boolean isFailed() {
+    return failed;
+  }
+
+  /**
+   * The thresholds that have been reached, e.g. {@code BLOCKER: 3 (threshold 1)}.
+   */
+  String describe() {
+    List<String> reached = new ArrayList<>();
+    severityThresholds.forEach((severity, threshold) -> describe(reached, severity.name(),
+        severityCounts.getOrDefault(severity, 0), threshold));
+    typeThresholds.forEach((type, threshold) -> describe(reached, type.name(),
+        typeCounts.getOrDefault(type, 0), threshold));
+    return String.join(", ", reached);
+  }
+
+  private static void describe(List<String> reached, String name, int count, int threshold) {
+    if (count >= threshold) {
+      reached.add(String.format("%s: %d (threshold %d)", name, count, threshold));
+    }
+  }
+
+  private static int count(String value) {
+    try {
+      int count = Integer.parseInt(value);
+      if (count < 1) {
+        throw new IllegalArgumentException("Threshold must be at least 1, not " + value);
+      }
+      return count;
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid threshold " + value);
+    }
+  }
+
+  private static boolean isSeverity(String name) {
+    for (Severity severity : Severity.values()) {
+      if (severity.name().equals(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isType(String name) {
+    for (Type type : Type.values()) {
+      if (type.name().equals(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Thrown once the conversion has finished (and every output has been written) if the gate failed.
+   */
+  static class FailedException extends IOException {
+
+    private static final long serialVersionUID = 2024101701L;
+
+    FailedException(String message) {
+      super(message);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package com.adaptris.verify;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads a report one line at a time without buffering the whole report.
+ * <p>
+ * Lines are split on the same terminators as {@link java.util.Scanner#nextLine()} ({@code \r\n}, {@code \n},
+ * {@code \r}, {@code \u2028}, {@code \u2029} and {@code \u0085}) so that line numbering matches the original
+ * in-memory implementation exactly.
+ * </p>
+ */
+class ReportLineReader implements Closeable {
+
+  private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  private final Reader reader;
+  private final char[] buffer;
+  private int position;
+  private int limit;
+  private boolean skipLineFeed;
+
+  ReportLineReader(Reader reader) {
+    this(reader, DEFAULT_BUFFER_SIZE);
+  }
+
+  ReportLineReader(Reader reader, int bufferSize) {
+    this.reader = reader;
+    buffer = new char[bufferSize];
+  }
+
+  /**
+   * Read lines directly from already decoded characters.
+   */
+  ReportLineReader(char[] chars, int offset, int length) {
+    reader = null;
+    buffer = chars;
+    position = offset;
+    limit = offset + length;
+  }
+
+  /**
+   * Read the next line.
+   *
+   * @return the line without its terminator, or null if the end of the stream has been reached.
+   */
+  String readLine() throws IOException {
+    StringBuilder pending = null;
+    while (true) {
+      if (position >= limit && !fill()) {
+        return pending != null ? pending.toString() : null;
+      }
+      if (skipLineFeed) {
+        skipLineFeed = false;
+        if (buffer[position] == '\n') {
+          position++;
+          continue;
+        }
+      }
+      int start = position;
+      while (position < limit) {
+        char c = buffer[position];
+        if (isTerminator(c)) {
+          String line = pending == null ? new String(buffer, start, position - start)
+              : pending.append(buffer, start, position - start).toString();
+          position++;
+          skipLineFeed = c == '\r';
+          return line;
+        }
+        position++;
+      }
+      if (pending == null) {
+        pending = new StringBuilder(Math.max(16, (position - start) * 2));
+      }
+      pending.append(buffer, start, position - start);
+    }
+  }
+
+  private boolean fill() throws IOException {
+    if (reader == null) {
+      return false;
+    }
+    int read;
+    do {
+      read = reader.read(buffer, 0, buffer.length);
+    } while (read == 0);
+    if (read < 0) {
+      return false;
+    }
+    position = 0;
+    limit = read;
+    return true;
+  }
+
+  static boolean isTerminator(char c) {
+    return c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029' || c == '\u0085';
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (reader != null) {
+      reader.close();
+    }
+  }
+}
@@ -0,0 +1,183 @@
+package com.adaptris.verify;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import com.adaptris.verify.report.sonar.Issue;
+
+/**
+ * Follows a report that is still being appended to, classifying only the lines added since the last look.
+ * <p>
+ * The watcher remembers the byte offset just after the last complete line it has read and the number of lines before
+ * it, so numbering carries on from where it left off and the issues are the same as converting the whole file. A line
+ * is complete once its {@code \n} has been written; anything after the last {@code \n} is left for the next look. If
+ * the file gets shorter, or is replaced by a different file (where the file system has file keys), everything is
+ * read again from the start. A compressed report can not be followed, since what is appended to it is not lines.
+ * </p>
+ */
+class ReportWatcher {
+
+  static final long DEFAULT_POLL_MILLIS = 1000;
+  private static final int BLOCK_SIZE = 1024 * 1024;
+
+  private final Path report;
+  private final LineClassifier classifier;
+  private final Listener listener;
+  private final List<Issue> issues = new ArrayList<>();
+  private boolean started;
+  private Object fileKey;
+  private long offset;
+  private int lines;
+
+  ReportWatcher(Path report, LineClassifier classifier, Listener listener) {
+    this.report = report.toAbsolutePath();
+    this.classifier = classifier;
+    this.listener = listener;
+  }
+
+  /**
+   * Watch until interrupted, telling the listener about the issues every time they change.
+   * <p>
+   * The directory is watched for changes to the report, but it is also checked every {@code pollMillis} since some
+   * file systems only notice changes slowly, or not at all.
+   * </p>
+   */
+  void watch(long pollMillis) throws IOException {
+    Path directory = report.getParent();
+    try (WatchService watchService = directory.getFileSystem().newWatchService()) {
+      directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+      update();
+      while (!Thread.currentThread().isInterrupted()) {
+        WatchKey key = watchService.poll(pollMillis, TimeUnit.MILLISECONDS);
+        if (key == null || concernsReport(key)) {
+          update();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private boolean concernsReport(WatchKey key) {
+    boolean concernsReport = false;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      concernsReport |= event.kind() == OVERFLOW || report.getFileName().equals(event.context());
+    }
+    key.reset();
+    return concernsReport;
+  }
+
+  /**
+   * Read whatever has been appended since the last update; the listener is told if the issues have changed.
+   *
+   * @return true if the issues have changed.
+   */
+  boolean update() throws IOException {
+    BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(report, BasicFileAttributes.class);
+    } catch (NoSuchFileException e) {
+      // Rotated away and not yet replaced; carry on with what we have until it is.
+      return false;
+    }
+    boolean changed = !started;
+    if (started && (attributes.size() < offset || !Objects.equals(fileKey, attributes.fileKey()))) {
+      changed = true;
+      offset = 0;
+      lines = 0;
+      issues.clear();
+      // Otherwise the classifier keeps sharing instances for every report the file has ever been.
+      classifier.clearSharedInstances();
+    }
+    started = true;
+    fileKey = attributes.fileKey();
+    // Checked whenever the file is read from the start, since the report need not exist when the watch starts.
+    if (offset == 0 && CompressedStreams.isCompressed(report)) {
+      throw new IOException(report + " is compressed, and can not be followed");
+    }
+    changed |= readAppended();
+    if (changed) {
+      listener.changed(Collections.unmodifiableList(issues));
+    }
+    return changed;
+  }
+
+  private boolean readAppended() throws IOException {
+    int issuesBefore = issues.size();
+    try (FileChannel channel = FileChannel.open(report, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+      while (true) {
+        buffer.clear();
+        int read = channel.read(buffer, offset);
+        int complete = read > 0 ? lastNewline(buffer, read) + 1 : 0;
+        if (complete > 0) {
+          parse(buffer, complete);
+          offset += complete;
+        } else if (read == buffer.capacity()) {
+          // A single line longer than the buffer.
+          buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+        } else {
+          break;
+        }
+      }
+    }
+    return issues.size() != issuesBefore;
+  }
+
+  private void parse(ByteBuffer buffer, int length) throws IOException {
+    buffer.position(0).limit(length);
+    CharBuffer chars = ParallelReportParser.decoder().decode(buffer);
+    ReportLineReader reader =
+        new ReportLineReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+    String line;
+    while ((line = reader.readLine()) != null) {
+      Optional<Issue> issue = classifier.classify(line, ++lines);
+      issue.ifPresent(issues::add);
+    }
+  }
+
+  private static int lastNewline(ByteBuffer buffer, int length) {
+    for (int i = length - 1; i >= 0; i--) {
+      if (buffer.get(i) == '\n') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  long getOffset() {
+    return offset;
+  }
+
+  int getLines() {
+    return lines;
+  }
+
+  @FunctionalInterface
+  interface Listener {
+    /**
+     * @param issues every issue in the report so far, which is only valid for the duration of the call.
+     */
+    void changed(List<Issue> issues) throws IOException;
+  }
+}
@@ -0,0 +1,206 @@
+package com.adaptris.verify;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import com.adaptris.verify.report.sonar.Severity;
+import com.adaptris.verify.report.sonar.Type;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Stable rule ids (and optionally a different severity or type) for messages, configured with {@code --ruleCatalogue}.
+ * <p>
+ * The catalogue is a JSON file of rules, each with an {@code id} and either a {@code contains} substring or a
+ * {@code pattern} regular expression that has to match the whole message, plus optional {@code severity} and
+ * {@code type}:
+ * </p>
+ * <pre>
+ * {"rules": [
+ *   {"id": "deprecated_payload_from_metadata", "contains": "is a payload-from-metadata-service", "severity": "MINOR"},
+ *   {"id": "deprecated_component", "pattern": ".*is deprecated.*", "type": "CODE_SMELL"}
+ * ]}
+ * </pre>
+ * <p>
+ * The first rule in the file that matches wins. All the substrings are compiled into one Aho-Corasick automaton, so
+ * finding them costs the same however many there are, and the patterns into one alternation, which is only tried
+ * when no substring rule that comes before every pattern has matched. Joining patterns renumbers their groups, so a
+ * pattern with groups or backreferences of its own is matched on its own instead.
+ * </p>
+ */
+class RuleCatalogue {
+
+  private final List<Rule> rules;
+  private final AhoCorasickMatcher substrings;
+  private final int[] substringRules;
+  // Group i + 1 of the joined patterns is joinedRules[i].
+  private final Pattern joined;
+  private final int[] joinedRules;
+  // In rule order.
+  private final Pattern[] separate;
+  private final int[] separateRules;
+
+  private RuleCatalogue(List<Rule> rules, List<String> substrings, List<Integer> substringRules,
+      List<Pattern> patterns, List<Integer> patternRules) {
+    this.rules = rules;
+    this.substrings = new AhoCorasickMatcher(substrings);
+    this.substringRules = substringRules.stream().mapToInt(Integer::intValue).toArray();
+    List<Integer> joinable = new ArrayList<>();
+    StringBuilder combined = new StringBuilder();
+    for (int i = 0; i < patterns.size(); i++) {
+      if (isJoinable(patterns.get(i))) {
+        combined.append(joinable.isEmpty() ? "" : "|").append('(').append(patterns.get(i).pattern()).append(')');
+        joinable.add(i);
+      }
+    }
+    Pattern joinedPattern = null;
+    if (!joinable.isEmpty()) {
+      try {
+        joinedPattern = Pattern.compile(combined.toString());
+      } catch (PatternSyntaxException e) {
+        // Something like \Q or an (?x) comment that runs on into the patterns after it.
+      }
+      if (joinedPattern == null || joinedPattern.matcher("").groupCount() != joinable.size()) {
+        joinedPattern = null;
+        joinable.clear();
+      }
+    }
+    joined = joinedPattern;
+    joinedRules = joinable.stream().mapToInt(patternRules::get).toArray();
+    List<Integer> others = new ArrayList<>();
+    for (int i = 0; i < patterns.size(); i++) {
+      if (!joinable.contains(i)) {
+        others.add(i);
+      }
+    }
+    separate = others.stream().map(patterns::get).toArray(Pattern[]::new);
+    separateRules = others.stream().mapToInt(patternRules::get).toArray();
+  }
+
+  // No groups to renumber, and nothing that looks like a numbered or named backreference into someone else's.
+  private static boolean isJoinable(Pattern pattern) {
+    if (pattern.matcher("").groupCount() > 0) {
+      return false;
+    }
+    String regex = pattern.pattern();
+    for (int i = 0; i < regex.length() - 1; i++) {
+      if (regex.charAt(i) == '\\') {
+        char next = regex.charAt(i + 1);
+        if (Character.isDigit(next) || next == 'k') {
+          return false;
+        }
+        i++;
+      }
+    }
+    return true;
+  }
+
+  static RuleCatalogue load(Path file) throws IOException {
+    JsonNode root = new ObjectMapper().readTree(file.toFile());
+    JsonNode rulesNode = root != null ? root.get("rules") : null;
+    if (rulesNode == null || !rulesNode.isArray()) {
+      throw new IOException(file + ": expected an object with an array of rules");
+    }
+    List<Rule> rules = new ArrayList<>();
+    List<String> substrings = new ArrayList<>();
+    List<Integer> substringRules = new ArrayList<>();
+    List<Pattern> patterns = new ArrayList<>();
+    List<Integer> patternRules = new ArrayList<>();
+    for (JsonNode ruleNode : rulesNode) {
+      String where = String.format("%s: rule %d", file, rules.size() + 1);
+      String id = text(ruleNode, "id");
+      String contains = text(ruleNode, "contains");
+      String pattern = text(ruleNode, "pattern");
+      if (id == null || id.isEmpty()) {
+        throw new IOException(where + " has no id");
+      }
+      if ((contains == null) == (pattern == null) || "".equals(contains)) {
+        throw new IOException(where + " needs one of contains or pattern");
+      }
+      if (contains != null) {
+        substrings.add(contains);
+        substringRules.add(rules.size());
+      } else {
+        try {
+          patterns.add(Pattern.compile(pattern));
+        } catch (PatternSyntaxException e) {
+          throw new IOException(where + " has an invalid pattern: " + e.getMessage(), e);
+        }
+        patternRules.add(rules.size());
+      }
+      rules.add(new Rule(id, severity(where, text(ruleNode, "severity")), type(where, text(ruleNode, "type"))));
+    }
+    return new RuleCatalogue(rules, substrings, substringRules, patterns, patternRules);
+  }
+
+  /**
+   * @return the first rule in the catalogue that matches the message, or null.
+   */
+  Rule match(String message) {
+    int substring = substrings.lowestMatch(message);
+    int best = substring != AhoCorasickMatcher.NO_MATCH ? substringRules[substring] : Integer.MAX_VALUE;
+    if (joined != null && joinedRules[0] < best) {
+      Matcher matcher = joined.matcher(message);
+      if (matcher.matches()) {
+        for (int i = 0; i < joinedRules.length; i++) {
+          if (matcher.start(i + 1) >= 0) {
+            best = Math.min(best, joinedRules[i]);
+            break;
+          }
+        }
+      }
+    }
+    for (int i = 0; i < separate.length && separateRules[i] < best; i++) {
+      if (separate[i].matcher(message).matches()) {
+        best = separateRules[i];
+      }
+    }
+    return best != Integer.MAX_VALUE ? rules.get(best) : null;
+  }
+
+  int size() {
+    return rules.size();
+  }
+
+  private static String text(JsonNode node, String field) {
+    JsonNode value = node.get(field);
+    return value != null && !value.isNull() ? value.asText() : null;
+  }
+
+  private static Severity severity(String where, String name) throws IOException {
+    try {
+      return name != null ? Severity.valueOf(name) : null;
+    } catch (IllegalArgumentException e) {
+      throw new IOException(where + " has an unknown severity " + name);
+    }
+  }
+
+  private static Type type(String where, String name) throws IOException {
+    try {
+      return name != null ? Type.valueOf(name) : null;
+    } catch (IllegalArgumentException e) {
+      throw new IOException(where + " has an unknown type " + name);
+    }
+  }
+
+  @AllArgsConstructor
+  static class Rule {
+
+    @Getter
+    private final String id;
+
+    /** Replaces the severity from the report, if not null. */
+    @Getter
+    private final Severity severity;
+
+    /** Replaces the type from the report, if not null. */
+    @Getter
+    private final Type type;
+  }
+}
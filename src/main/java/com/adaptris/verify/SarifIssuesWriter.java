@@ -0,0 +1,146 @@
+package com.adaptris.verify;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import com.adaptris.verify.report.sonar.Issue;
+import com.adaptris.verify.report.sonar.Location;
+import com.adaptris.verify.report.sonar.Severity;
+import com.adaptris.verify.report.sonar.TextRange;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+
+/**
+ * Writes issues as a single run of a SARIF 2.1.0 log, one result at a time.
+ * <p>
+ * Results refer to their rule by {@code ruleId} only; the rules are not known until the whole report has been read,
+ * so the tool component does not list them. The sonar severity and type are kept in the result properties.
+ * </p>
+ */
+class SarifIssuesWriter implements IssueSink {
+
+  static final String SCHEMA = "https://json.schemastore.org/sarif-2.1.0.json";
+  static final String VERSION = "2.1.0";
+
+  private final JsonGenerator generator;
+  private final boolean flushEachIssue;
+
+  /**
+   * @param toolName the name of the tool that produced the results, which is the engine id.
+   * @param pretty pretty print the output.
+   * @param flushEachIssue flush after every issue, for when the output is a pipe that is read as it is written.
+   */
+  SarifIssuesWriter(JsonFactory factory, OutputStream out, String toolName, boolean pretty, boolean flushEachIssue)
+      throws IOException {
+    this.flushEachIssue = flushEachIssue;
+    generator = factory.createGenerator(out, JsonEncoding.UTF8);
+    if (pretty) {
+      generator.setPrettyPrinter(new DefaultPrettyPrinter());
+    }
+    generator.writeStartObject();
+    generator.writeStringField("$schema", SCHEMA);
+    generator.writeStringField("version", VERSION);
+    generator.writeFieldName("runs");
+    generator.writeStartArray();
+    generator.writeStartObject();
+    generator.writeFieldName("tool");
+    generator.writeStartObject();
+    generator.writeFieldName("driver");
+    generator.writeStartObject();
+    generator.writeStringField("name", toolName);
+    generator.writeEndObject();
+    generator.writeEndObject();
+    generator.writeFieldName("results");
+    generator.writeStartArray();
+  }
+
+  @Override
+  public void write(Issue issue) throws IOException {
+    Location location = issue.getPrimaryLocation();
+    generator.writeStartObject();
+    if (issue.getRuleId() != null) {
+      generator.writeStringField("ruleId", issue.getRuleId());
+    }
+    generator.writeStringField("level", level(issue.getSeverity()));
+    generator.writeFieldName("message");
+    generator.writeStartObject();
+    generator.writeStringField("text", location != null && location.getMessage() != null ? location.getMessage() : "");
+    generator.writeEndObject();
+    if (location != null && location.getFilePath() != null) {
+      writeLocation(location);
+    }
+    generator.writeFieldName("properties");
+    generator.writeStartObject();
+    if (issue.getSeverity() != null) {
+      generator.writeStringField("severity", issue.getSeverity().name());
+    }
+    if (issue.getType() != null) {
+      generator.writeStringField("type", issue.getType().name());
+    }
+    generator.writeEndObject();
+    generator.writeEndObject();
+    if (flushEachIssue) {
+      generator.flush();
+    }
+  }
+
+  private void writeLocation(Location location) throws IOException {
+    generator.writeFieldName("locations");
+    generator.writeStartArray();
+    generator.writeStartObject();
+    generator.writeFieldName("physicalLocation");
+    generator.writeStartObject();
+    generator.writeFieldName("artifactLocation");
+    generator.writeStartObject();
+    generator.writeStringField("uri", uri(location.getFilePath()));
+    generator.writeEndObject();
+    TextRange textRange = location.getTextRange();
+    if (textRange != null && textRange.getStartLine() != null) {
+      generator.writeFieldName("region");
+      generator.writeStartObject();
+      generator.writeNumberField("startLine", textRange.getStartLine());
+      if (textRange.getEndLine() != null) {
+        generator.writeNumberField("endLine", textRange.getEndLine());
+      }
+      generator.writeEndObject();
+    }
+    generator.writeEndObject();
+    generator.writeEndObject();
+    generator.writeEndArray();
+  }
+
+  // SARIF wants a URI relative to the repository root rather than a platform path.
+  static String uri(String filePath) {
+    String uri = filePath.replace('\\', '/');
+    while (uri.startsWith("./")) {
+      uri = uri.substring(2);
+    }
+    return uri;
+  }
+
+  static String level(Severity severity) {
+    if (severity == null) {
+      return "warning";
+    }
+    switch (severity) {
+      case BLOCKER:
+      case CRITICAL:
+        return "error";
+      case MAJOR:
+        return "warning";
+      default:
+        return "note";
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try (JsonGenerator g = generator) {
+      g.writeEndArray();
+      g.writeEndObject();
+      g.writeEndArray();
+      g.writeEndObject();
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package com.adaptris.verify;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import com.adaptris.verify.report.sonar.Issue;
+import com.adaptris.verify.report.sonar.Location;
+import com.adaptris.verify.report.sonar.Severity;
+import com.adaptris.verify.report.sonar.TextRange;
+import com.adaptris.verify.report.sonar.Type;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads the sonar generic issue format one {@link Issue} at a time, the counterpart of {@link SonarIssuesWriter}.
+ * <p>
+ * Fields that are not part of the model (e.g. {@code secondaryLocations}) are skipped.
+ * </p>
+ */
+class SonarIssuesReader implements Closeable {
+
+  private final JsonParser parser;
+  private boolean inIssues;
+
+  SonarIssuesReader(JsonFactory factory, InputStream in) throws IOException {
+    parser = factory.createParser(in);
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      throw new JsonParseException(parser, "Expected an object containing issues");
+    }
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken value = parser.nextToken();
+      if ("issues".equals(field) && value == JsonToken.START_ARRAY) {
+        inIssues = true;
+        return;
+      }
+      parser.skipChildren();
+    }
+  }
+
+  /**
+   * @return the next issue, or null when there are no more.
+   */
+  Issue next() throws IOException {
+    if (!inIssues) {
+      return null;
+    }
+    JsonToken token = parser.nextToken();
+    if (token == JsonToken.END_ARRAY) {
+      inIssues = false;
+      return null;
+    }
+    if (token != JsonToken.START_OBJECT) {
+      throw new JsonParseException(parser, "Expected an issue");
+    }
+    Issue issue = new Issue();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken value = parser.nextToken();
+      switch (field) {
+        case "engineId":
+          issue.setEngineId(intern(text(value)));
+          break;
+        case "ruleId":
+          issue.setRuleId(text(value));
+          break;
+        case "severity":
+          issue.setSeverity(value == JsonToken.VALUE_NULL ? null : severity(parser.getText()));
+          break;
+        case "type":
+          issue.setType(value == JsonToken.VALUE_NULL ? null : type(parser.getText()));
+          break;
+        case "primaryLocation":
+          issue.setPrimaryLocation(value == JsonToken.START_OBJECT ? location() : null);
+          break;
+        case "effortMinutes":
+          issue.setEffortMinutes(value == JsonToken.VALUE_NUMBER_INT ? parser.getIntValue() : null);
+          break;
+        default:
+          parser.skipChildren();
+          break;
+      }
+    }
+    return issue;
+  }
+
+  private Location location() throws IOException {
+    Location location = new Location();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken value = parser.nextToken();
+      switch (field) {
+        case "message":
+          location.setMessage(text(value));
+          break;
+        case "filePath":
+          location.setFilePath(intern(text(value)));
+          break;
+        case "textRange":
+          location.setTextRange(value == JsonToken.START_OBJECT ? textRange() : null);
+          break;
+        default:
+          parser.skipChildren();
+          break;
+      }
+    }
+    return location;
+  }
+
+  private TextRange textRange() throws IOException {
+    TextRange textRange = new TextRange();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken value = parser.nextToken();
+      if ("startLine".equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+        textRange.setStartLine(parser.getIntValue());
+      } else if ("endLine".equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+        textRange.setEndLine(parser.getIntValue());
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return textRange;
+  }
+
+  private String text(JsonToken value) throws IOException {
+    return value == JsonToken.VALUE_NULL ? null : parser.getText();
+  }
+
+  private Severity severity(String name) throws JsonParseException {
+    try {
+      return Severity.valueOf(name);
+    } catch (IllegalArgumentException e) {
+      throw new JsonParseException(parser, "Unknown severity " + name);
+    }
+  }
+
+  private Type type(String name) throws JsonParseException {
+    try {
+      return Type.valueOf(name);
+    } catch (IllegalArgumentException e) {
+      throw new JsonParseException(parser, "Unknown type " + name);
+    }
+  }
+
+  // Engine ids and file paths repeat on nearly every issue.
+  private static String intern(String value) {
+    return value != null ? value.intern() : null;
+  }
+
+  @Override
+  public void close() throws IOException {
+    parser.close();
+  }
+}
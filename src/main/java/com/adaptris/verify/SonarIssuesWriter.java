@@ -0,0 +1,103 @@
+package com.adaptris.verify;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import com.adaptris.verify.report.sonar.Issue;
+import com.adaptris.verify.report.sonar.Location;
+import com.adaptris.verify.report.sonar.TextRange;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+
+/**
+ * Writes the sonar generic issue format one {@link Issue} at a time.
+ * <p>
+ * The fields are written directly to the {@link JsonGenerator} rather than through databind, in declaration order
+ * and leaving out nulls; when pretty printed the output is identical to serializing a complete
+ * {@link com.adaptris.verify.report.sonar.Issues} with {@code writerWithDefaultPrettyPrinter()} and
+ * {@code NON_NULL} inclusion, but only the issue currently being written is held in memory.
+ * </p>
+ */
+class SonarIssuesWriter implements IssueSink {
+
+  private final JsonGenerator generator;
+  private final boolean flushEachIssue;
+
+  SonarIssuesWriter(JsonFactory factory, OutputStream out) throws IOException {
+    this(factory, out, true, false);
+  }
+
+  /**
+   * @param pretty pretty print the output; sonar itself does not care about whitespace.
+   * @param flushEachIssue flush after every issue, for when the output is a pipe that is read as it is written.
+   */
+  SonarIssuesWriter(JsonFactory factory, OutputStream out, boolean pretty, boolean flushEachIssue)
+      throws IOException {
+    this.flushEachIssue = flushEachIssue;
+    generator = factory.createGenerator(out, JsonEncoding.UTF8);
+    if (pretty) {
+      generator.setPrettyPrinter(new DefaultPrettyPrinter());
+    }
+    generator.writeStartObject();
+    generator.writeFieldName("issues");
+    generator.writeStartArray();
+  }
+
+  @Override
+  public void write(Issue issue) throws IOException {
+    generator.writeStartObject();
+    writeString("engineId", issue.getEngineId());
+    writeString("ruleId", issue.getRuleId());
+    if (issue.getSeverity() != null) {
+      generator.writeStringField("severity", issue.getSeverity().name());
+    }
+    if (issue.getType() != null) {
+      generator.writeStringField("type", issue.getType().name());
+    }
+    if (issue.getPrimaryLocation() != null) {
+      generator.writeFieldName("primaryLocation");
+      write(issue.getPrimaryLocation());
+    }
+    writeNumber("effortMinutes", issue.getEffortMinutes());
+    generator.writeEndObject();
+    if (flushEachIssue) {
+      generator.flush();
+    }
+  }
+
+  private void write(Location location) throws IOException {
+    generator.writeStartObject();
+    writeString("message", location.getMessage());
+    writeString("filePath", location.getFilePath());
+    TextRange textRange = location.getTextRange();
+    if (textRange != null) {
+      generator.writeFieldName("textRange");
+      generator.writeStartObject();
+      writeNumber("startLine", textRange.getStartLine());
+      writeNumber("endLine", textRange.getEndLine());
+      generator.writeEndObject();
+    }
+    generator.writeEndObject();
+  }
+
+  private void writeString(String name, String value) throws IOException {
+    if (value != null) {
+      generator.writeStringField(name, value);
+    }
+  }
+
+  private void writeNumber(String name, Integer value) throws IOException {
+    if (value != null) {
+      generator.writeNumberField(name, value);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try (JsonGenerator g = generator) {
+      g.writeEndArray();
+      g.writeEndObject();
+    }
+  }
+}
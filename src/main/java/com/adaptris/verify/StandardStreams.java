@@ -0,0 +1,46 @@
+package com.adaptris.verify;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Access to stdin and stdout for the {@code -} file name, without letting the conversion close them.
+ */
+final class StandardStreams {
+
+  static final String STDIO = "-";
+
+  private StandardStreams() {
+  }
+
+  static boolean isStdio(String path) {
+    return STDIO.equals(path);
+  }
+
+  static InputStream in() {
+    return new FilterInputStream(System.in) {
+      @Override
+      public void close() {
+        // stdin belongs to the JVM.
+      }
+    };
+  }
+
+  static OutputStream out() {
+    return new FilterOutputStream(System.out) {
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+      }
+
+      @Override
+      public void close() throws IOException {
+        // stdout belongs to the JVM.
+        flush();
+      }
+    };
+  }
+}
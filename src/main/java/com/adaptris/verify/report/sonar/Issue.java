@@ -28,4 +28,12 @@ public class Issue {
   @Getter
   @Setter
   private Location primaryLocation;
+
+  @Getter
+  @Setter
+  private Integer effortMinutes;
+
+  public Issue(String engineId, String ruleId, Severity severity, Type type, Location primaryLocation) {
+    this(engineId, ruleId, severity, type, primaryLocation, null);
+  }
 }
@@ -16,4 +16,12 @@ public class Location {
   @Getter
   @Setter
   private String filePath;
+
+  @Getter
+  @Setter
+  private TextRange textRange;
+
+  public Location(String message, String filePath) {
+    this(message, filePath, null);
+  }
 }
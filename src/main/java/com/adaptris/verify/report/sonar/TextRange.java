@@ -0,0 +1,19 @@
+package com.adaptris.verify.report.sonar;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@NoArgsConstructor
+@AllArgsConstructor
+public class TextRange {
+
+  @Getter
+  @Setter
+  private Integer startLine;
+
+  @Getter
+  @Setter
+  private Integer endLine;
+}
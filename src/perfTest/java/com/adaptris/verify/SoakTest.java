@@ -0,0 +1,100 @@
+package com.adaptris.verify;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End to end conversions of a synthetic report that is bigger than the heap, run by {@code gradle perfTest} under a
+ * small fixed {@code -Xmx}. Anything that holds the whole report (or all of its issues) in memory fails with an
+ * {@link OutOfMemoryError}; anything that gets much slower, or allocates much more per byte of report, fails its
+ * budget.
+ * <p>
+ * The budgets are system properties so that a slow build agent can loosen them without a code change:
+ * {@code perfTest.bytes} (the report size), {@code perfTest.minMegabytesPerSecond} and
+ * {@code perfTest.maxAllocatedPerByte} (bytes allocated by the converting thread for each byte of report).
+ * </p>
+ */
+class SoakTest {
+
+  private static final long BYTES = Long.getLong("perfTest.bytes", 256L * 1024 * 1024);
+  private static final double MIN_MEGABYTES_PER_SECOND =
+      Double.parseDouble(System.getProperty("perfTest.minMegabytesPerSecond", "10"));
+  private static final double MAX_ALLOCATED_PER_BYTE =
+      Double.parseDouble(System.getProperty("perfTest.maxAllocatedPerByte", "8"));
+
+  private static Path directory;
+  private static Path report;
+  private static Path gzipReport;
+
+  @BeforeAll
+  static void generate() throws IOException {
+    directory = Files.createTempDirectory(SoakTest.class.getSimpleName());
+    report = directory.resolve("report.txt");
+    SyntheticReport.mix("30:20:35:15", 42).writeBytes(report, BYTES);
+    gzipReport = directory.resolve("report.txt.gz");
+    try (InputStream in = Files.newInputStream(report);
+        OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzipReport))) {
+      in.transferTo(out);
+    }
+  }
+
+  @AfterAll
+  static void cleanUp() throws IOException {
+    for (String name : new String[] {"report.txt", "report.txt.gz", "out.json", "out.json.gz"}) {
+      Files.deleteIfExists(directory.resolve(name));
+    }
+    Files.deleteIfExists(directory);
+  }
+
+  @Test
+  void reportIsBiggerThanTheHeap() throws IOException {
+    // Otherwise the memory ceiling proves nothing.
+    assertTrue(Files.size(report) > Runtime.getRuntime().maxMemory(),
+        String.format("%d byte report, %d byte heap", Files.size(report), Runtime.getRuntime().maxMemory()));
+  }
+
+  @Test
+  void sequential() throws Exception {
+    ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long thread = Thread.currentThread().getId();
+    long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+    convert("--reportFile", report.toString(), "--outputFile", directory.resolve("out.json").toString());
+    double allocatedPerByte = (double) (threads.getThreadAllocatedBytes(thread) - allocatedBefore) / BYTES;
+    System.err.println(String.format("Allocated %.1f bytes per report byte", allocatedPerByte));
+    assertTrue(allocatedPerByte <= MAX_ALLOCATED_PER_BYTE,
+        String.format("Allocated %.1f bytes per report byte, budget %.1f", allocatedPerByte, MAX_ALLOCATED_PER_BYTE));
+  }
+
+  @Test
+  void parallel() throws Exception {
+    convert("--reportFile", report.toString(), "--outputFile", directory.resolve("out.json").toString(),
+        "--parallel", "--compact");
+  }
+
+  @Test
+  void pipelineCompressed() throws Exception {
+    convert("--reportFile", gzipReport.toString(), "--outputFile", directory.resolve("out.json.gz").toString(),
+        "--pipeline");
+  }
+
+  private static void convert(String... args) throws Exception {
+    long started = System.nanoTime();
+    assertEquals(0, new CreateVerifyReport().run(args));
+    double seconds = (System.nanoTime() - started) / 1e9;
+    double megabytesPerSecond = BYTES / (1024.0 * 1024.0) / seconds;
+    System.err.println(String.format("%s: %.1fs, %.1f MB/s", String.join(" ", args), seconds, megabytesPerSecond));
+    assertTrue(megabytesPerSecond >= MIN_MEGABYTES_PER_SECOND,
+        String.format("%.1f MB/s, budget %.1f MB/s", megabytesPerSecond, MIN_MEGABYTES_PER_SECOND));
+  }
+}
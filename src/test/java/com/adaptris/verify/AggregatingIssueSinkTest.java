@@ -0,0 +1,71 @@
+package com.adaptris.verify;
+
+import com.adaptris.verify.report.sonar.Issue;
+import com.adaptris.verify.report.sonar.Location;
+import com.adaptris.verify.report.sonar.Severity;
+import com.adaptris.verify.report.sonar.TextRange;
+import com.adaptris.verify.report.sonar.Type;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AggregatingIssueSinkTest {
+
+  @Test
+  void aggregate() throws Exception {
+    List<Issue> written = new ArrayList<>();
+    AggregatingIssueSink sink = new AggregatingIssueSink(sink(written), "rule", null);
+    for (int i = 1; i <= 1000; i++) {
+      sink.write(issue("rule" + i, Severity.INFO, "repeated"));
+      if (i % 100 == 0) {
+        sink.write(issue("interlok_validation_error", Severity.MAJOR, "Interlok Validation Error:broken"));
+      }
+    }
+    sink.write(issue("rule1001", Severity.MINOR, "repeated"));
+    sink.write(issue("rule1002", Severity.INFO, "once"));
+    assertTrue(written.isEmpty());
+    sink.close();
+    assertEquals(4, written.size());
+    assertEquals("rule1", written.get(0).getRuleId());
+    assertEquals("repeated (1000 occurrences)", written.get(0).getPrimaryLocation().getMessage());
+    assertEquals(5, written.get(0).getPrimaryLocation().getTextRange().getStartLine());
+    assertEquals("interlok_validation_error", written.get(1).getRuleId());
+    assertEquals("Interlok Validation Error:broken (10 occurrences)", written.get(1).getPrimaryLocation().getMessage());
+    assertEquals("repeated", written.get(2).getPrimaryLocation().getMessage());
+    assertEquals(Severity.MINOR, written.get(2).getSeverity());
+    assertEquals("once", written.get(3).getPrimaryLocation().getMessage());
+    assertNull(written.get(3).getEffortMinutes());
+  }
+
+  @Test
+  void effortMinutes() throws Exception {
+    List<Issue> written = new ArrayList<>();
+    try (AggregatingIssueSink sink = new AggregatingIssueSink(sink(written), "rule", 5)) {
+      sink.write(issue("rule1", Severity.INFO, "repeated"));
+      sink.write(issue("rule2", Severity.INFO, "repeated"));
+      sink.write(issue("rule3", Severity.INFO, "once"));
+    }
+    assertEquals(10, (int) written.get(0).getEffortMinutes());
+    assertEquals(5, (int) written.get(1).getEffortMinutes());
+  }
+
+  private static Issue issue(String ruleId, Severity severity, String message) {
+    return new Issue("engine", ruleId, severity, Type.CODE_SMELL, new Location(message, "adapter.xml", new TextRange(5, 9)));
+  }
+
+  private static IssueSink sink(List<Issue> written) {
+    return new IssueSink() {
+      @Override
+      public void write(Issue issue) {
+        written.add(issue);
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+  }
+}
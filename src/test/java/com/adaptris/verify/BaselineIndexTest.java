@@ -0,0 +1,93 @@
+package com.adaptris.verify;
+
+import com.adaptris.verify.report.sonar.Issue;
+import com.adaptris.verify.report.sonar.Location;
+import com.adaptris.verify.report.sonar.Severity;
+import com.adaptris.verify.report.sonar.Type;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BaselineIndexTest {
+
+  @Test
+  void writeAndLoad() throws Exception {
+    File baselineFile = File.createTempFile(BaselineIndexTest.class.getSimpleName(), ".baseline");
+    try {
+      BaselineIndex.Builder builder = new BaselineIndex.Builder("rule");
+      for (int i = 0; i < 5000; i++) {
+        builder.add(issue("rule" + (i + 1), Severity.INFO, "message " + i));
+      }
+      builder.add(issue("rule9999", Severity.INFO, "message 1"));
+      builder.write(baselineFile.toPath());
+      BaselineIndex baseline = BaselineIndex.load(baselineFile.toPath());
+      assertEquals(5000, baseline.size());
+      for (int i = 0; i < 5000; i++) {
+        assertTrue(baseline.contains(BaselineIndex.fingerprint(issue("rule" + (i + 7), Severity.INFO, "message " + i), "rule")));
+      }
+      assertFalse(baseline.contains(BaselineIndex.fingerprint(issue("rule1", Severity.MAJOR, "message 0"), "rule")));
+      assertFalse(baseline.contains(BaselineIndex.fingerprint(issue("rule1", Severity.INFO, "message 5000"), "rule")));
+    } finally {
+      baselineFile.delete();
+    }
+  }
+
+  @Test
+  void fingerprint() {
+    Issue issue = issue("interlok_validation_error", Severity.MAJOR, "Interlok Validation Error:broken");
+    assertEquals(BaselineIndex.fingerprint(issue, "rule"),
+        BaselineIndex.fingerprint(issue("interlok_validation_error", Severity.MAJOR, "Interlok Validation Error:broken"), "rule"));
+    assertNotEquals(BaselineIndex.fingerprint(issue, "rule"),
+        BaselineIndex.fingerprint(issue("other", Severity.MAJOR, "Interlok Validation Error:broken"), "rule"));
+    assertTrue(BaselineIndex.isPositional("rule12", "rule"));
+    assertFalse(BaselineIndex.isPositional("rule", "rule"));
+    assertFalse(BaselineIndex.isPositional("rule_1a", "rule"));
+  }
+
+  @Test
+  void loadNotABaseline() throws Exception {
+    File baselineFile = File.createTempFile(BaselineIndexTest.class.getSimpleName(), ".baseline");
+    try {
+      Files.write(baselineFile.toPath(), "CODE_SMELL,INFO,something\n".getBytes(StandardCharsets.UTF_8));
+      assertThrows(IOException.class, () -> BaselineIndex.load(baselineFile.toPath()));
+    } finally {
+      baselineFile.delete();
+    }
+  }
+
+  @Test
+  void loadCorruptSize() throws Exception {
+    File baselineFile = File.createTempFile(BaselineIndexTest.class.getSimpleName(), ".baseline");
+    try {
+      assertThrows(IOException.class, () -> BaselineIndex.load(writeFull(baselineFile, 4, 4)));
+      assertThrows(IOException.class, () -> BaselineIndex.load(writeFull(baselineFile, 4, -1)));
+      // A size that undercounts the filled slots still can not make a lookup go round forever.
+      BaselineIndex baseline = BaselineIndex.load(writeFull(baselineFile, 4, 1));
+      assertTrue(baseline.contains(1));
+      assertFalse(baseline.contains(5));
+    } finally {
+      baselineFile.delete();
+    }
+  }
+
+  // Every slot filled, with fingerprints 1 to capacity.
+  private static Path writeFull(File file, int capacity, int size) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(16 + capacity * Long.BYTES);
+    buffer.putInt(BaselineIndex.MAGIC).putInt(BaselineIndex.VERSION).putInt(capacity).putInt(size);
+    for (int i = 1; i <= capacity; i++) {
+      buffer.putLong(i);
+    }
+    return Files.write(file.toPath(), buffer.array());
+  }
+
+  private static Issue issue(String ruleId, Severity severity, String message) {
+    return new Issue("interlokVerify", ruleId, severity, Type.CODE_SMELL, new Location(message, "adapter.xml"));
+  }
+}
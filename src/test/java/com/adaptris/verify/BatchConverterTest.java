@@ -0,0 +1,125 @@
+package com.adaptris.verify;
+
+import com.adaptris.verify.report.sonar.Issues;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchConverterTest {
+
+  @Test
+  void runManifestContinuesAfterFailure() throws Exception {
+    File tmpDir = createTempDirectory();
+    File report1 = new File(tmpDir, "report1.txt");
+    File report2 = new File(tmpDir, "report2.txt");
+    FileUtils.writeStringToFile(report1, "CODE_SMELL,INFO,something", StandardCharsets.UTF_8);
+    FileUtils.writeStringToFile(report2, "CODE_SMELL,INFO,one\nBUG,MAJOR,two", StandardCharsets.UTF_8);
+    File manifest = new File(tmpDir, "manifest.txt");
+    FileUtils.writeStringToFile(manifest,
+        "# comment\n"
+        + report1.getAbsolutePath() + "," + new File(tmpDir, "out1.json").getAbsolutePath() + "\n"
+        + "\n"
+        + new File(tmpDir, "missing.txt").getAbsolutePath() + "," + new File(tmpDir, "out-missing.json").getAbsolutePath() + "\n"
+        + report2.getAbsolutePath() + " , " + new File(tmpDir, "out2.json").getAbsolutePath() + ",./other.xml\n",
+        StandardCharsets.UTF_8);
+    CreateVerifyReport createVerifyReport = new CreateVerifyReport();
+    assertEquals(1, createVerifyReport.run(new String[]{"--batch", manifest.getAbsolutePath(), "-t", "2"}));
+    ObjectMapper mapper = new ObjectMapper();
+    assertEquals(1, mapper.readValue(new File(tmpDir, "out1.json"), Issues.class).getIssues().size());
+    Issues issues2 = mapper.readValue(new File(tmpDir, "out2.json"), Issues.class);
+    assertEquals(2, issues2.getIssues().size());
+    assertEquals("./other.xml", issues2.getIssues().get(0).getPrimaryLocation().getFilePath());
+    assertFalse(new File(tmpDir, "out-missing.json").exists());
+    cleanUpTempDirectory(tmpDir);
+  }
+
+  @Test
+  void report() throws Exception {
+    CreateVerifyReport.ArgumentWrapper defaults =
+        new CreateVerifyReport.ArgumentWrapper("engineId", "rule", "./adapter.xml", null, null);
+    List<BatchConverter.Result> results = Arrays.asList(
+        new BatchConverter.Result(defaults.forFiles("a.txt", "a.json", "./adapter.xml"), null),
+        new BatchConverter.Result(defaults.forFiles("b.txt", "b.json", "./adapter.xml"), new IOException("boom")));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+    assertEquals(1, BatchConverter.report(results, new PrintStream(out, true), new PrintStream(err, true)));
+    assertTrue(out.toString().contains("a.txt -> a.json"));
+    assertTrue(out.toString().contains("Converted 1 of 2 reports"));
+    assertTrue(err.toString().contains("b.txt"));
+    assertTrue(err.toString().contains("boom"));
+    PrintStream ignored = new PrintStream(new ByteArrayOutputStream(), true);
+    assertEquals(0, BatchConverter.report(results.subList(0, 1), ignored, ignored));
+    List<BatchConverter.Result> gateFailed = Arrays.asList(results.get(0),
+        new BatchConverter.Result(defaults.forFiles("c.txt", "c.json", "./adapter.xml"),
+            new QualityGate.FailedException("BLOCKER: 1 >= 1")));
+    assertEquals(CreateVerifyReport.QUALITY_GATE_FAILED, BatchConverter.report(gateFailed, ignored, ignored));
+    List<BatchConverter.Result> mixed = Arrays.asList(gateFailed.get(1), results.get(1));
+    assertEquals(1, BatchConverter.report(mixed, ignored, ignored));
+  }
+
+  @Test
+  void expandGlob() throws Exception {
+    File tmpDir = createTempDirectory();
+    for (String adapter : new String[]{"one", "two"}) {
+      File report = new File(tmpDir, adapter + "/build/report.txt");
+      FileUtils.writeStringToFile(report, "CODE_SMELL,INFO," + adapter, StandardCharsets.UTF_8);
+    }
+    FileUtils.writeStringToFile(new File(tmpDir, "three/report.txt"), "CODE_SMELL,INFO,three", StandardCharsets.UTF_8);
+    String glob = tmpDir.getAbsolutePath().replace('\\', '/') + "/*/build/report.txt";
+    CreateVerifyReport.ArgumentWrapper defaults =
+        new CreateVerifyReport.ArgumentWrapper("engineId", "rule", "./adapter.xml", null, null);
+    List<CreateVerifyReport.ArgumentWrapper> jobs = BatchConverter.expandGlob(glob, defaults);
+    assertEquals(2, jobs.size());
+    assertEquals(new File(tmpDir, "one/build/report.json").getAbsolutePath(), jobs.get(0).getOutputFile());
+    assertEquals(0, new CreateVerifyReport().run(new String[]{"--batchGlob", glob}));
+    assertTrue(new File(tmpDir, "two/build/report.json").exists());
+    assertFalse(new File(tmpDir, "three/report.json").exists());
+    FileUtils.deleteDirectory(tmpDir);
+  }
+
+  @Test
+  void outputFor() throws Exception {
+    assertEquals(Paths.get("build", "report.json"), BatchConverter.outputFor(Paths.get("build", "report.txt")));
+    assertEquals(Paths.get("build", "report.json"), BatchConverter.outputFor(Paths.get("build", "report")));
+    assertEquals(Paths.get("build", "report.sonar.json"), BatchConverter.outputFor(Paths.get("build", "report.json")));
+    assertEquals(Paths.get("build", "report.sonar.json"), BatchConverter.outputFor(Paths.get("build", "report.JSON")));
+  }
+
+  @Test
+  void readManifestInvalidLine() throws Exception {
+    File tmpDir = createTempDirectory();
+    File manifest = new File(tmpDir, "manifest.txt");
+    FileUtils.writeStringToFile(manifest, "just-one-field\n", StandardCharsets.UTF_8);
+    CreateVerifyReport.ArgumentWrapper defaults =
+        new CreateVerifyReport.ArgumentWrapper("engineId", "rule", "./adapter.xml", null, null);
+    assertThrows(IOException.class, () -> BatchConverter.readManifest(manifest.toPath(), defaults));
+    cleanUpTempDirectory(tmpDir);
+  }
+
+  private File createTempDirectory() throws IOException {
+    File tempDir = File.createTempFile(BatchConverterTest.class.getSimpleName(), "", null);
+    tempDir.delete();
+    if (!tempDir.exists()) {
+      tempDir.mkdir();
+    }
+    return tempDir;
+  }
+
+  public void cleanUpTempDirectory(File tempDir) {
+    for (final File f : tempDir.listFiles()) {
+      f.delete();
+    }
+    tempDir.delete();
+  }
+}
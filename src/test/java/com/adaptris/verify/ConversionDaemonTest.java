@@ -0,0 +1,128 @@
+package com.adaptris.verify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversionDaemonTest {
+
+  @Test
+  void convertInDaemon() throws Exception {
+    Path directory = Files.createTempDirectory(ConversionDaemonTest.class.getSimpleName());
+    File reportFile = directory.resolve("report.txt").toFile();
+    FileUtils.writeStringToFile(reportFile, "CODE_SMELL,INFO,something\nBUG,MAJOR,Interlok Validation Error:broken", StandardCharsets.UTF_8);
+    File expected = directory.resolve("expected.json").toFile();
+    new CreateVerifyReport().run(new String[]{"-f", reportFile.getAbsolutePath(), "-o", expected.getAbsolutePath(), "-e", "daemonTest"});
+
+    ConversionDaemon daemon = new ConversionDaemon(new CreateVerifyReport(), directory, 2);
+    daemon.start();
+    Thread serving = new Thread(() -> {
+      try {
+        daemon.serve();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    serving.start();
+    try {
+      ExecutorService clients = Executors.newFixedThreadPool(4);
+      List<Future<Boolean>> sent = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        File output = directory.resolve("out" + i + ".json").toFile();
+        sent.add(clients.submit(() -> DaemonClient.convert(directory, args(reportFile, output))));
+      }
+      for (Future<Boolean> future : sent) {
+        assertTrue(future.get());
+      }
+      clients.shutdown();
+      ObjectMapper mapper = new ObjectMapper();
+      for (int i = 0; i < 8; i++) {
+        assertEquals(mapper.readTree(expected), mapper.readTree(directory.resolve("out" + i + ".json").toFile()));
+      }
+      // Failures come back to the client rather than falling back.
+      IOException failure = assertThrows(IOException.class, () -> DaemonClient.convert(directory,
+          args(directory.resolve("missing.txt").toFile(), directory.resolve("missing.json").toFile())));
+      assertTrue(failure.getMessage().contains("missing.txt"));
+      // A request without the right token is refused.
+      Path registry = directory.resolve(ConversionDaemon.REGISTRY_FILE);
+      Properties properties = new Properties();
+      try (InputStream in = Files.newInputStream(registry)) {
+        properties.load(in);
+      }
+      Path forged = Files.createDirectory(directory.resolve("forged"));
+      properties.setProperty(ConversionDaemon.TOKEN, "guess");
+      try (OutputStream out = Files.newOutputStream(forged.resolve(ConversionDaemon.REGISTRY_FILE))) {
+        properties.store(out, null);
+      }
+      assertThrows(IOException.class, () -> DaemonClient.stop(forged));
+      Files.delete(forged.resolve(ConversionDaemon.REGISTRY_FILE));
+      Files.delete(forged);
+    } finally {
+      assertTrue(DaemonClient.stop(directory));
+      serving.join(10_000);
+    }
+    assertFalse(serving.isAlive());
+    assertFalse(Files.exists(directory.resolve(ConversionDaemon.REGISTRY_FILE)));
+    // With no daemon the client falls back to converting in process.
+    assertFalse(DaemonClient.convert(directory, args(reportFile, directory.resolve("fallback.json").toFile())));
+    File fallback = directory.resolve("fallback.json").toFile();
+    assertEquals(0, new CreateVerifyReport().run(new String[]{"-f", reportFile.getAbsolutePath(), "-o", fallback.getAbsolutePath(),
+        "-e", "daemonTest", "--useDaemon", "--daemonDir", directory.toString()}));
+    assertEquals(new ObjectMapper().readTree(expected), new ObjectMapper().readTree(fallback));
+    FileUtils.deleteDirectory(directory.toFile());
+  }
+
+  @Test
+  void unresponsiveDaemon() throws Exception {
+    Path directory = Files.createTempDirectory(ConversionDaemonTest.class.getSimpleName());
+    // Accepts connections (the backlog does that) but never answers them.
+    try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      Properties properties = new Properties();
+      properties.setProperty(ConversionDaemon.PORT, Integer.toString(server.getLocalPort()));
+      properties.setProperty(ConversionDaemon.TOKEN, "token");
+      try (OutputStream out = Files.newOutputStream(directory.resolve(ConversionDaemon.REGISTRY_FILE))) {
+        properties.store(out, null);
+      }
+      long start = System.nanoTime();
+      assertFalse(DaemonClient.convert(directory,
+          args(directory.resolve("report.txt").toFile(), directory.resolve("out.json").toFile())));
+      assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(DaemonClient.READY_TIMEOUT_MILLIS * 5L));
+    }
+    FileUtils.deleteDirectory(directory.toFile());
+  }
+
+  @Test
+  void canSend() throws Exception {
+    CreateVerifyReport createVerifyReport = new CreateVerifyReport();
+    assertTrue(DaemonClient.canSend(createVerifyReport.parseArguments(new String[]{"-f", "report.txt", "-o", "out.json", "-c", "-p"})));
+    assertFalse(DaemonClient.canSend(createVerifyReport.parseArguments(new String[]{"-f", "-", "-o", "out.json"})));
+    assertFalse(DaemonClient.canSend(createVerifyReport.parseArguments(new String[]{"-f", "report.txt", "-o", "out.json", "-x"})));
+    assertFalse(DaemonClient.canSend(createVerifyReport.parseArguments(
+        new String[]{"-f", "report.txt", "-o", "out.json", "--failOn", "BLOCKER:1"})));
+    assertTrue(createVerifyReport.parseArguments(new String[]{"--daemon"}).getDaemon());
+  }
+
+  private static CreateVerifyReport.ArgumentWrapper args(File report, File output) {
+    return new CreateVerifyReport.ArgumentWrapper("daemonTest", "rule", "./src/main/interlok/config/adapter.xml",
+        report.getAbsolutePath(), output.getAbsolutePath());
+  }
+}
@@ -4,16 +4,31 @@ import com.adaptris.verify.report.sonar.Issue;
 import com.adaptris.verify.report.sonar.Issues;
 import com.adaptris.verify.report.sonar.Severity;
 import com.adaptris.verify.report.sonar.Type;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.cli.MissingOptionException;
+import org.apache.commons.cli.ParseException;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -172,6 +187,273 @@ class CreateVerifyReportTest {
     assertEquals("./adapter.xml", argumentWrapper.getLocationFilePath());
   }
 
+  @Test
+  void parseArgumentsParallel() throws Exception {
+    CreateVerifyReport createVerifyReport = new CreateVerifyReport();
+    CreateVerifyReport.ArgumentWrapper argumentWrapper = createVerifyReport.parseArguments(
+        new String[]{"-f", "./file.txt", "-o", "./out.json", "--parallel", "3"});
+    assertEquals(3, argumentWrapper.getParallelism());
+    argumentWrapper = createVerifyReport.parseArguments(new String[]{"-f", "./file.txt", "-o", "./out.json", "-p"});
+    assertEquals(Runtime.getRuntime().availableProcessors(), argumentWrapper.getParallelism());
+    argumentWrapper = createVerifyReport.parseArguments(new String[]{"-f", "./file.txt", "-o", "./out.json"});
+    assertEquals(0, argumentWrapper.getParallelism());
+  }
+
+  @Test
+  void parseArgumentsParallelInvalid() {
+    CreateVerifyReport createVerifyReport = new CreateVerifyReport();
+    assertThrows(ParseException.class, () -> {
+      createVerifyReport.parseArguments(new String[]{"-f", "./file.txt", "-o", "./out.json", "-p", "lots"});
+    });
+    assertThrows(ParseException.class, () -> {
+      createVerifyReport.parseArguments(new String[]{"-f", "./file.txt", "-o", "./out.json", "-p", "0"});
+    });
+  }
+
+  @Test
+  void parseArgumentsPipeline() throws Exception {
+    CreateVerifyReport createVerifyReport = new CreateVerifyReport();
+    assertEquals(3, createVerifyReport.parseArguments(
+        new String[]{"-f", "./file.txt", "-o", "./out.json", "--pipeline", "3"}).getPipelineWorkers());
+    assertEquals(Runtime.getRuntime().availableProcessors(), createVerifyReport.parseArguments(
+        new String[]{"-f", "./file.txt", "-o", "./out.json", "-P"}).getPipelineWorkers());
+    assertEquals(0, createVerifyReport.parseArguments(new String[]{"-f", "./file.txt", "-o", "./out.json"}).getPipelineWorkers());
+    assertThrows(ParseException.class, () -> {
+      createVerifyReport.parseArguments(new String[]{"-f", "./file.txt", "-o", "./out.json", "-P", "0"});
+    });
+  }
+
+  @Test
+  void mainParallel() throws Exception {
+    File tmpDir = createTempDirectory();
+    File outputFile = new File(tmpDir, "out.json");
+    File parallelOutputFile = new File(tmpDir, "out-parallel.json");
+    File reportFile = new File(tmpDir, "report.txt");
+    FileUtils.writeStringToFile(reportFile, "CODE_SMELL,INFO,something\nnoise\nBUG,MAJOR,Interlok Validation Error:broken\nCODE_SMELL,INFO,something else", StandardCharsets.UTF_8);
+    CreateVerifyReport.main(new String[]{"-f", reportFile.getAbsolutePath(), "-o", outputFile.getAbsolutePath()});
+    CreateVerifyReport.main(new String[]{"-f", reportFile.getAbsolutePath(), "-o", parallelOutputFile.getAbsolutePath(), "-p", "2"});
+    assertArrayEquals(FileUtils.readFileToByteArray(outputFile), FileUtils.readFileToByteArray(parallelOutputFile));
+    cleanUpTempDirectory(tmpDir);
+  }
+
+  @Test
+  void mainCompact() throws Exception {
+    File tmpDir = createTempDirectory();
+    File outputFile = new File(tmpDir, "out.json");
+    File reportFile = new File(tmpDir, "report.txt");
+    String report = "CODE_SMELL,INFO,something\nBUG,MAJOR,Interlok Validation Error:broken";
+    FileUtils.writeStringToFile(reportFile, report, StandardCharsets.UTF_8);
+    String[] args = new String[]{"-f", reportFile.getAbsolutePath(), "-o", outputFile.getAbsolutePath(), "--compact"};
+    CreateVerifyReport.main(args);
+    CreateVerifyReport createVerifyReport = new CreateVerifyReport();
+    Issues issues = createVerifyReport.createIssues(createVerifyReport.parseArguments(args), report);
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    assertArrayEquals(mapper.writer().writeValueAsBytes(issues), FileUtils.readFileToByteArray(outputFile));
+    cleanUpTempDirectory(tmpDir);
+  }
+
+  @Test
+  void mainMultipleFormats() throws Exception {
+    File tmpDir = createTempDirectory();
+    File outputFile = new File(tmpDir, "out.json");
+    File fanOutFile = new File(tmpDir, "fan-out.json");
+    File sarifFile = new File(tmpDir, "out.sarif");
+    File junitFile = new File(tmpDir, "out.xml");
+    File reportFile = new File(tmpDir, "report.txt");
+    FileUtils.writeStringToFile(reportFile, "CODE_SMELL,INFO,something\nnoise\nBUG,MAJOR,Interlok Validation Error:broken", StandardCharsets.UTF_8);
+    CreateVerifyReport.main(new String[]{"-f", reportFile.getAbsolutePath(), "-o", outputFile.getAbsolutePath()});
+    CreateVerifyReport.main(new String[]{"-f", reportFile.getAbsolutePath(), "-o", fanOutFile.getAbsolutePath(),
+        "--format", "sarif", "--output", sarifFile.getAbsolutePath(), "--format", "JUNIT", "--output", junitFile.getAbsolutePath()});
+    assertArrayEquals(FileUtils.readFileToByteArray(outputFile), FileUtils.readFileToByteArray(fanOutFile));
+    assertEquals(2, new ObjectMapper().readTree(sarifFile).get("runs").get(0).get("results").size());
+    assertTrue(FileUtils.readFileToString(junitFile, StandardCharsets.UTF_8).contains("classname=\"interlok_validation_error\""));
+    cleanUpTempDirectory(tmpDir);
+  }
+
+  @Test
+  void parseArgumentsFormats() throws Exception {
+    CreateVerifyReport createVerifyReport = new CreateVerifyReport();
+    CreateVerifyReport.ArgumentWrapper argumentWrapper = createVerifyReport.parseArguments(
+        new String[]{"-f", "./file.txt", "--format", "sarif", "--output", "./out.sarif"});
+    assertNull(argumentWrapper.getOutputFile());
+    assertEquals(1, argumentWrapper.outputs().size());
+    assertEquals(OutputFormat.SARIF, argumentWrapper.outputs().get(0).getFormat());
+    assertThrows(ParseException.class, () -> createVerifyReport.parseArguments(
+        new String[]{"-f", "./file.txt", "--format", "sarif"}));
+    assertThrows(ParseException.class, () -> createVerifyReport.parseArguments(
+        new String[]{"-f", "./file.txt", "--format", "pdf", "--output", "./out.pdf"}));
+  }
+
+  @Test
+  void mainStats() throws Exception {
+    File tmpDir = createTempDirectory();
+    File outputFile = new File(tmpDir, "out.json");
+    File statsFile = new File(tmpDir, "stats.json");
+    File reportFile = new File(tmpDir, "report.txt");
+    FileUtils.writeStringToFile(reportFile, "CODE_SMELL,INFO,something\nnoise\nBUG,MAJOR,Interlok Validation Error:broken\nCODE_SMELL,INFO,something else", StandardCharsets.UTF_8);
+    for (String mode : new String[]{"-p1", "-c"}) {
+      CreateVerifyReport.main(new String[]{"-f", reportFile.getAbsolutePath(), "-o", outputFile.getAbsolutePath(), mode,
+          "--stats", statsFile.getAbsolutePath()});
+      JsonNode stats = new ObjectMapper().readTree(statsFile);
+      assertEquals(reportFile.getAbsolutePath(), stats.get("reportFile").asText());
+      assertEquals(4, stats.get("linesRead").asLong());
+      assertEquals(1, stats.get("linesMatchedRule").asLong());
+      assertEquals(2, stats.get("linesMatchedMessage").asLong());
+      assertEquals(1, stats.get("linesDropped").asLong());
+      assertEquals(3, stats.get("issuesWritten").asLong());
+      assertEquals(reportFile.length(), stats.get("bytesIn").asLong());
+      assertEquals(outputFile.length(), stats.get("bytesOut").asLong());
+      assertTrue(stats.get("peakHeapBytes").asLong() > 0);
+      assertTrue(stats.get("phaseMillis").has("classify"));
+    }
+    // Batch conversions share the JVM, so the process wide peak is not theirs to report.
+    CreateVerifyReport.ArgumentWrapper batchJob = new CreateVerifyReport().parseArguments(
+        new String[]{"-b", "manifest.txt", "--stats"}).forFiles(reportFile.getAbsolutePath(), outputFile.getAbsolutePath(), ".");
+    assertTrue(batchJob.getBatchJob());
+    ConversionStats batchStats = new ConversionStats(batchJob.getReportFile(), !batchJob.getBatchJob());
+    batchStats.finish();
+    assertFalse(new ObjectMapper().readTree(batchStats.toJson(new JsonFactory())).has("peakHeapBytes"));
+    cleanUpTempDirectory(tmpDir);
+  }
+
+  @Test
+  void mainBaseline() throws Exception {
+    File tmpDir = createTempDirectory();
+    File outputFile = new File(tmpDir, "out.json");
+    File baselineFile = new File(tmpDir, "verify.baseline");
+    File reportFile = new File(tmpDir, "report.txt");
+    FileUtils.writeStringToFile(reportFile, "CODE_SMELL,INFO,something\nBUG,MAJOR,Interlok Validation Error:broken", StandardCharsets.UTF_8);
+    CreateVerifyReport.main(new String[]{"-f", reportFile.getAbsolutePath(), "--writeBaseline", baselineFile.getAbsolutePath()});
+    assertTrue(baselineFile.exists());
+    FileUtils.writeStringToFile(reportFile, "CODE_SMELL,MINOR,new\nCODE_SMELL,INFO,something\nBUG,MAJOR,Interlok Validation Error:broken", StandardCharsets.UTF_8);
+    CreateVerifyReport.main(new String[]{"-f", reportFile.getAbsolutePath(), "-o", outputFile.getAbsolutePath(), "--baseline", baselineFile.getAbsolutePath()});
+    JsonNode issues = new ObjectMapper().readTree(outputFile).get("issues");
+    assertEquals(1, issues.size());
+    assertEquals("new", issues.get(0).get("primaryLocation").get("message").asText());
+    cleanUpTempDirectory(tmpDir);
+  }
+
+  @Test
+  void mainCompressed() throws Exception {
+    File tmpDir = createTempDirectory();
+    String report = "CODE_SMELL,INFO,something\nBUG,MAJOR,Interlok Validation Error:broken\n";
+    File gzipReport = new File(tmpDir, "report.txt.gz");
+    try (OutputStream out = new GZIPOutputStream(new FileOutputStream(gzipReport))) {
+      out.write(report.getBytes(StandardCharsets.UTF_8));
+    }
+    // Recognised by its content, not its name.
+    File zipReport = new File(tmpDir, "report.dat");
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipReport))) {
+      out.putNextEntry(new ZipEntry("reports/"));
+      out.putNextEntry(new ZipEntry("reports/report.txt"));
+      out.write(report.getBytes(StandardCharsets.UTF_8));
+    }
+    File plainOutput = new File(tmpDir, "out.json");
+    File gzipOutput = new File(tmpDir, "out.json.gz");
+    for (File reportFile : new File[]{gzipReport, zipReport}) {
+      CreateVerifyReport.main(new String[]{"-f", reportFile.getAbsolutePath(), "-o", plainOutput.getAbsolutePath(), "-p", "2"});
+      assertEquals(2, new ObjectMapper().readTree(plainOutput).get("issues").size());
+      CreateVerifyReport.main(new String[]{"-f", reportFile.getAbsolutePath(), "-o", gzipOutput.getAbsolutePath()});
+      try (InputStream in = new GZIPInputStream(new FileInputStream(gzipOutput))) {
+        assertEquals(new ObjectMapper().readTree(plainOutput), new ObjectMapper().readTree(in));
+      }
+      CreateVerifyReport.main(new String[]{"-f", reportFile.getAbsolutePath(), "-o", gzipOutput.getAbsolutePath(), "-P", "2"});
+      try (InputStream in = new GZIPInputStream(new FileInputStream(gzipOutput))) {
+        assertEquals(new ObjectMapper().readTree(plainOutput), new ObjectMapper().readTree(in));
+      }
+    }
+    cleanUpTempDirectory(tmpDir);
+  }
+
+  @Test
+  void mainAggregate() throws Exception {
+    File tmpDir = createTempDirectory();
+    File outputFile = new File(tmpDir, "out.json");
+    File reportFile = new File(tmpDir, "report.txt");
+    FileUtils.writeStringToFile(reportFile, "CODE_SMELL,INFO,something\nBUG,MAJOR,Interlok Validation Error:broken\n"
+        + "CODE_SMELL,INFO,something\nCODE_SMELL,INFO,something", StandardCharsets.UTF_8);
+    CreateVerifyReport.main(new String[]{"-f", reportFile.getAbsolutePath(), "-o", outputFile.getAbsolutePath(),
+        "--aggregate", "--effortMinutes", "15"});
+    JsonNode issues = new ObjectMapper().readTree(outputFile).get("issues");
+    assertEquals(2, issues.size());
+    assertEquals("rule1", issues.get(0).get("ruleId").asText());
+    assertEquals("something (3 occurrences)", issues.get(0).get("primaryLocation").get("message").asText());
+    assertEquals(45, issues.get(0).get("effortMinutes").asInt());
+    assertEquals(15, issues.get(1).get("effortMinutes").asInt());
+    assertThrows(ParseException.class, () -> new CreateVerifyReport().parseArguments(
+        new String[]{"-f", "./file.txt", "-o", "./out.json", "--effortMinutes", "15"}));
+    cleanUpTempDirectory(tmpDir);
+  }
+
+  @Test
+  void runQualityGate() throws Exception {
+    File tmpDir = createTempDirectory();
+    File outputFile = new File(tmpDir, "out.json");
+    File reportFile = new File(tmpDir, "report.txt");
+    FileUtils.writeStringToFile(reportFile, "CODE_SMELL,INFO,something\nBUG,BLOCKER,broken\nBUG,MAJOR,also broken", StandardCharsets.UTF_8);
+    assertEquals(0, new CreateVerifyReport().run(new String[]{"-f", reportFile.getAbsolutePath(), "-o", outputFile.getAbsolutePath(),
+        "--failOn", "BLOCKER:2,BUG:3"}));
+    assertEquals(CreateVerifyReport.QUALITY_GATE_FAILED, new CreateVerifyReport().run(new String[]{"-f", reportFile.getAbsolutePath(),
+        "-o", outputFile.getAbsolutePath(), "--failOn", "BLOCKER:1"}));
+    // The outputs are still written in full.
+    assertEquals(3, new ObjectMapper().readTree(outputFile).get("issues").size());
+    outputFile.delete();
+    assertEquals(CreateVerifyReport.QUALITY_GATE_FAILED, new CreateVerifyReport().run(new String[]{"-f", reportFile.getAbsolutePath(),
+        "--failOn", "BUG:2", "--gateOnly", "-p", "2"}));
+    assertFalse(outputFile.exists());
+    cleanUpTempDirectory(tmpDir);
+  }
+
+  @Test
+  void parseArgumentsQualityGate() throws Exception {
+    CreateVerifyReport createVerifyReport = new CreateVerifyReport();
+    assertThrows(MissingOptionException.class, () -> createVerifyReport.parseArguments(new String[]{"-f", "./file.txt", "--gateOnly"}));
+    assertThrows(ParseException.class, () -> createVerifyReport.parseArguments(
+        new String[]{"-f", "./file.txt", "-o", "./out.json", "--failOn", "BLOCKER"}));
+    assertThrows(ParseException.class, () -> createVerifyReport.parseArguments(
+        new String[]{"-f", "./file.txt", "--failOn", "BLOCKER:1", "--gateOnly", "--writeBaseline", "./verify.baseline"}));
+    CreateVerifyReport.ArgumentWrapper argumentWrapper = createVerifyReport.parseArguments(
+        new String[]{"-f", "./file.txt", "--failOn", "BLOCKER:1", "--gateOnly"});
+    assertTrue(argumentWrapper.getGateOnly());
+    assertEquals("BLOCKER:1", argumentWrapper.forFiles("./a.txt", "./a.json", "./adapter.xml").getFailOn());
+  }
+
+  @Test
+  void mainMerge() throws Exception {
+    File tmpDir = createTempDirectory();
+    File first = new File(tmpDir, "first.json");
+    File second = new File(tmpDir, "second.json");
+    File merged = new File(tmpDir, "merged.json");
+    File reportFile = new File(tmpDir, "report.txt");
+    FileUtils.writeStringToFile(reportFile, "CODE_SMELL,INFO,something\nBUG,MAJOR,Interlok Validation Error:broken", StandardCharsets.UTF_8);
+    CreateVerifyReport.main(new String[]{"-f", reportFile.getAbsolutePath(), "-o", first.getAbsolutePath(), "-l", "b.xml"});
+    CreateVerifyReport.main(new String[]{"-f", reportFile.getAbsolutePath(), "-o", second.getAbsolutePath(), "-l", "a.xml"});
+    CreateVerifyReport.main(new String[]{"--merge", first.getAbsolutePath(), second.getAbsolutePath(), first.getAbsolutePath(),
+        "-o", merged.getAbsolutePath(), "--dedupe"});
+    JsonNode issues = new ObjectMapper().readTree(merged).get("issues");
+    assertEquals(4, issues.size());
+    assertEquals("a.xml", issues.get(0).get("primaryLocation").get("filePath").asText());
+    assertEquals("interlok_validation_error", issues.get(0).get("ruleId").asText());
+    assertEquals("b.xml", issues.get(3).get("primaryLocation").get("filePath").asText());
+    assertEquals("rule1", issues.get(3).get("ruleId").asText());
+    cleanUpTempDirectory(tmpDir);
+  }
+
+  @Test
+  void parseArgumentsBatch() throws Exception {
+    CreateVerifyReport createVerifyReport = new CreateVerifyReport();
+    CreateVerifyReport.ArgumentWrapper argumentWrapper = createVerifyReport.parseArguments(
+        new String[]{"--batch", "./manifest.txt", "--batchThreads", "4", "-e", "thomas"});
+    assertTrue(argumentWrapper.isBatch());
+    assertEquals("./manifest.txt", argumentWrapper.getBatchManifest());
+    assertEquals(4, argumentWrapper.getBatchThreads());
+    CreateVerifyReport.ArgumentWrapper job = argumentWrapper.forFiles("./file.txt", "./out.json", "./adapter.xml");
+    assertEquals("thomas", job.getEngineId());
+    assertEquals("./file.txt", job.getReportFile());
+    assertFalse(job.isBatch());
+  }
+
   @Test
   void parseArgumentsShortHandHelp() throws Exception {
     CreateVerifyReport createVerifyReport = new CreateVerifyReport();
@@ -304,6 +586,60 @@ class CreateVerifyReportTest {
     cleanUpTempDirectory(tmpDir);
   }
 
+  @Test
+  void mainStreamingOutputMatchesObjectMapper() throws Exception {
+    File tmpDir = createTempDirectory();
+    File outputFile = new File(tmpDir, "out.json");
+    File reportFile = new File(tmpDir, "report.txt");
+    String report = "CODE_SMELL,INFO,something\r\nnoise\nBUG,MAJOR,Interlok Validation Error:broken\r\n\nCODE_SMELL,MINOR,\"quoted\" \u00e9";
+    FileUtils.writeStringToFile(reportFile, report, StandardCharsets.UTF_8);
+    List<String> args = new ArrayList<>();
+    args.add("--reportFile");
+    args.add(reportFile.getAbsolutePath());
+    args.add("--outputFile");
+    args.add(outputFile.getAbsolutePath());
+    CreateVerifyReport.main(args.toArray(new String[]{}));
+    CreateVerifyReport createVerifyReport = new CreateVerifyReport();
+    Issues issues = createVerifyReport.createIssues(createVerifyReport.parseArguments(args.toArray(new String[]{})), report);
+    assertEquals(3, issues.getIssues().size());
+    assertEquals("rule5", issues.getIssues().get(2).getRuleId());
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    assertArrayEquals(mapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(issues),
+        FileUtils.readFileToByteArray(outputFile));
+    FileUtils.writeStringToFile(reportFile, "", StandardCharsets.UTF_8);
+    CreateVerifyReport.main(args.toArray(new String[]{}));
+    assertArrayEquals(mapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(new Issues(new ArrayList<>())),
+        FileUtils.readFileToByteArray(outputFile));
+    cleanUpTempDirectory(tmpDir);
+  }
+
+  @Test
+  void mainStdinStdout() throws Exception {
+    File tmpDir = createTempDirectory();
+    File outputFile = new File(tmpDir, "out.json");
+    File reportFile = new File(tmpDir, "report.txt");
+    String report = "CODE_SMELL,INFO,something\nBUG,MAJOR,Interlok Validation Error:broken";
+    FileUtils.writeStringToFile(reportFile, report, StandardCharsets.UTF_8);
+    CreateVerifyReport.main(new String[]{"-f", reportFile.getAbsolutePath(), "-o", outputFile.getAbsolutePath()});
+    InputStream stdin = System.in;
+    PrintStream stdout = System.out;
+    ByteArrayOutputStream captured = new ByteArrayOutputStream();
+    try {
+      System.setIn(new ByteArrayInputStream(report.getBytes(StandardCharsets.UTF_8)));
+      System.setOut(new PrintStream(captured, false, "UTF-8"));
+      CreateVerifyReport.main(new String[]{"-f", "-", "-o", "-", "--parallel"});
+      System.out.print("still open");
+      System.out.flush();
+    } finally {
+      System.setIn(stdin);
+      System.setOut(stdout);
+    }
+    byte[] expected = FileUtils.readFileToByteArray(outputFile);
+    assertEquals(new String(expected, StandardCharsets.UTF_8) + "still open", captured.toString("UTF-8"));
+    cleanUpTempDirectory(tmpDir);
+  }
+
   private File createTempDirectory() throws IOException {
     File tempDir = File.createTempFile(CreateVerifyReportTest.class.getSimpleName(), "", null);
     tempDir.delete();
@@ -0,0 +1,102 @@
+package com.adaptris.verify;
+
+import com.adaptris.verify.report.sonar.Issue;
+import com.adaptris.verify.report.sonar.Issues;
+import com.adaptris.verify.report.sonar.Severity;
+import com.adaptris.verify.report.sonar.Type;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IssueCollectorTest {
+
+  @Test
+  void sameAsReport() throws Exception {
+    String report = "CODE_SMELL,INFO,something\nnot an issue\nBUG,MAJOR,Interlok Validation Error:broken\nCODE_SMELL,MINOR,else";
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (IssueCollector collector = new IssueCollector(IssueCollector.sonarWriter(out))) {
+      assertTrue(collector.line("CODE_SMELL,INFO,something"));
+      assertFalse(collector.line("not an issue"));
+      assertTrue(collector.line("BUG,MAJOR,Interlok Validation Error:broken"));
+      collector.issue(Type.CODE_SMELL, Severity.MINOR, "else");
+      assertEquals(4, collector.getLines());
+    }
+    CreateVerifyReport createVerifyReport = new CreateVerifyReport();
+    Issues expected = createVerifyReport.createIssues(createVerifyReport.parseArguments(new String[]{"-f", "-", "-o", "-"}), report);
+    ObjectMapper mapper = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    assertEquals(mapper.writerWithDefaultPrettyPrinter().writeValueAsString(expected), out.toString("UTF-8"));
+  }
+
+  @Test
+  void multiLineMessage() throws Exception {
+    List<Issue> collected = new ArrayList<>();
+    try (IssueCollector collector = new IssueCollector("engine", "rule", "adapter.xml", new IssueSink() {
+      @Override
+      public void write(Issue issue) {
+        collected.add(issue);
+      }
+
+      @Override
+      public void close() {
+      }
+    })) {
+      collector.issue(Type.BUG, Severity.MAJOR, "Unable to load\nCaused by: java.io.IOException: broken");
+      collector.issue(Type.BUG, Severity.MAJOR, "Interlok Validation Error:broken\r\n  at somewhere");
+    }
+    assertEquals("rule1", collected.get(0).getRuleId());
+    assertEquals("Unable to load\nCaused by: java.io.IOException: broken", collected.get(0).getPrimaryLocation().getMessage());
+    assertEquals("interlok_validation_error", collected.get(1).getRuleId());
+    assertEquals("Interlok Validation Error:broken\r\n  at somewhere", collected.get(1).getPrimaryLocation().getMessage());
+  }
+
+  @Test
+  void concurrentLines() throws Exception {
+    List<Issue> collected = Collections.synchronizedList(new ArrayList<>());
+    IssueCollector collector = new IssueCollector("engine", "rule", "adapter.xml", new IssueSink() {
+      @Override
+      public void write(Issue issue) {
+        collected.add(issue);
+      }
+
+      @Override
+      public void close() {
+      }
+    });
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 4; thread++) {
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 250; i++) {
+            collector.issue(Type.CODE_SMELL, Severity.INFO, "message");
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    collector.close();
+    assertEquals(1000, collected.size());
+    // Every event got its own line number, and the sink saw them in that order.
+    for (int i = 0; i < collected.size(); i++) {
+      assertEquals("rule" + (i + 1), collected.get(i).getRuleId());
+      assertEquals("engine", collected.get(i).getEngineId());
+    }
+    assertThrows(IOException.class, () -> collector.line("BUG,MAJOR,too late"));
+  }
+}
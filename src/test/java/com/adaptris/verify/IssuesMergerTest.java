@@ -0,0 +1,159 @@
+package com.adaptris.verify;
+
+import com.adaptris.verify.report.sonar.Issue;
+import com.adaptris.verify.report.sonar.Location;
+import com.adaptris.verify.report.sonar.Severity;
+import com.adaptris.verify.report.sonar.TextRange;
+import com.adaptris.verify.report.sonar.Type;
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IssuesMergerTest {
+
+  private static final JsonFactory FACTORY = new JsonFactory();
+
+  @Test
+  void mergeUnsorted() throws Exception {
+    List<Path> inputs = shards(3, 20, 1);
+    try {
+      List<Issue> merged = new ArrayList<>();
+      new IssuesMerger(FACTORY).merge(inputs, false, false, sink(merged));
+      assertEquals(60, merged.size());
+      assertEquals(read(inputs.get(0)).get(0).getRuleId(), merged.get(0).getRuleId());
+      assertEquals(read(inputs.get(2)).get(19).getRuleId(), merged.get(59).getRuleId());
+    } finally {
+      delete(inputs);
+    }
+  }
+
+  @Test
+  void mergeSortedSpillsRuns() throws Exception {
+    List<Path> inputs = shards(4, 250, 2);
+    try {
+      List<Issue> inMemory = new ArrayList<>();
+      new IssuesMerger(FACTORY).merge(inputs, true, false, sink(inMemory));
+      List<Issue> spilled = new ArrayList<>();
+      new IssuesMerger(FACTORY, 7).merge(inputs, true, false, sink(spilled));
+      assertEquals(1000, inMemory.size());
+      assertEquals(1000, spilled.size());
+      for (int i = 0; i < inMemory.size(); i++) {
+        assertEquals(0, IssuesMerger.ORDER.compare(inMemory.get(i), spilled.get(i)));
+        if (i > 0) {
+          assertTrue(IssuesMerger.ORDER.compare(spilled.get(i - 1), spilled.get(i)) <= 0);
+        }
+      }
+    } finally {
+      delete(inputs);
+    }
+  }
+
+  @Test
+  void mergeSortedInPasses() throws Exception {
+    List<Path> inputs = shards(3, 100, 3);
+    try {
+      List<Issue> inMemory = new ArrayList<>();
+      new IssuesMerger(FACTORY).merge(inputs, true, false, sink(inMemory));
+      // 100 runs of 3, merged 4 at a time: 25 runs, then 7, then 2 and finally into the sink.
+      List<Issue> passes = new ArrayList<>();
+      new IssuesMerger(FACTORY, 3, 4).merge(inputs, true, false, sink(passes));
+      assertEquals(300, passes.size());
+      for (int i = 0; i < inMemory.size(); i++) {
+        assertEquals(0, IssuesMerger.ORDER.compare(inMemory.get(i), passes.get(i)));
+      }
+    } finally {
+      delete(inputs);
+    }
+  }
+
+  @Test
+  void mergeDedupe() throws Exception {
+    // The same seed for every shard, so every issue appears once per shard.
+    List<Path> inputs = shards(3, 50, 0);
+    try {
+      List<Issue> deduped = new ArrayList<>();
+      new IssuesMerger(FACTORY, 16).merge(inputs, false, true, sink(deduped));
+      List<Issue> distinct = new ArrayList<>();
+      new IssuesMerger(FACTORY).merge(inputs.subList(0, 1), false, true, sink(distinct));
+      assertEquals(distinct.size(), deduped.size());
+      for (int i = 1; i < deduped.size(); i++) {
+        assertTrue(IssuesMerger.ORDER.compare(deduped.get(i - 1), deduped.get(i)) < 0);
+      }
+    } finally {
+      delete(inputs);
+    }
+  }
+
+  @Test
+  void readSkipsUnknownFields() throws Exception {
+    String json = "{\"other\":[1,{\"a\":2}],\"issues\":[{\"engineId\":\"e\",\"ruleId\":\"r\",\"severity\":\"MAJOR\","
+        + "\"type\":\"BUG\",\"effortMinutes\":5,\"primaryLocation\":{\"message\":\"m\",\"filePath\":\"f\","
+        + "\"textRange\":{\"startLine\":3,\"startColumn\":1}},\"secondaryLocations\":[{\"message\":\"x\"}]}]}";
+    try (SonarIssuesReader reader = new SonarIssuesReader(FACTORY,
+        new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))) {
+      Issue issue = reader.next();
+      assertEquals("r", issue.getRuleId());
+      assertEquals(Severity.MAJOR, issue.getSeverity());
+      assertEquals(Type.BUG, issue.getType());
+      assertEquals(5, (int) issue.getEffortMinutes());
+      assertEquals("f", issue.getPrimaryLocation().getFilePath());
+      assertEquals(3, issue.getPrimaryLocation().getTextRange().getStartLine());
+      assertNull(issue.getPrimaryLocation().getTextRange().getEndLine());
+      assertNull(reader.next());
+    }
+  }
+
+  private static List<Path> shards(int count, int issuesPerShard, int seedStep) throws IOException {
+    List<Path> shards = new ArrayList<>();
+    for (int shard = 0; shard < count; shard++) {
+      Random random = new Random(42 + shard * seedStep);
+      Path path = Files.createTempFile(IssuesMergerTest.class.getSimpleName(), ".json");
+      shards.add(path);
+      try (SonarIssuesWriter writer = new SonarIssuesWriter(FACTORY, Files.newOutputStream(path))) {
+        for (int i = 0; i < issuesPerShard; i++) {
+          writer.write(new Issue("interlokVerify", "rule" + random.nextInt(10),
+              Severity.values()[random.nextInt(Severity.values().length)], Type.CODE_SMELL,
+              new Location("message " + random.nextInt(5), "adapter" + random.nextInt(3) + ".xml",
+                  random.nextBoolean() ? new TextRange(random.nextInt(4), null) : null)));
+        }
+      }
+    }
+    return shards;
+  }
+
+  private static List<Issue> read(Path path) throws IOException {
+    List<Issue> issues = new ArrayList<>();
+    new IssuesMerger(FACTORY).merge(Arrays.asList(path), false, false, sink(issues));
+    return issues;
+  }
+
+  private static IssueSink sink(List<Issue> issues) {
+    return new IssueSink() {
+      @Override
+      public void write(Issue issue) {
+        issues.add(issue);
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+  }
+
+  private static void delete(List<Path> paths) throws IOException {
+    for (Path path : paths) {
+      Files.deleteIfExists(path);
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package com.adaptris.verify;
+
+import com.adaptris.verify.report.sonar.Issue;
+import com.adaptris.verify.report.sonar.Location;
+import com.adaptris.verify.report.sonar.Severity;
+import com.adaptris.verify.report.sonar.TextRange;
+import com.adaptris.verify.report.sonar.Type;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JUnitIssuesWriterTest {
+
+  @Test
+  void write() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (JUnitIssuesWriter writer = new JUnitIssuesWriter(out, "interlokVerify", false)) {
+      writer.write(new Issue("interlokVerify", "rule1", Severity.INFO, Type.CODE_SMELL,
+          new Location("<something> & \u0001", "adapter.xml")));
+      writer.write(new Issue("interlokVerify", "interlok_validation_error", Severity.BLOCKER, Type.BUG,
+          new Location("Interlok Validation Error:broken", "adapter.xml", new TextRange(3, 12))));
+    }
+    Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+        .parse(new ByteArrayInputStream(out.toByteArray()));
+    Element suite = (Element) document.getElementsByTagName("testsuite").item(0);
+    assertEquals("interlokVerify", suite.getAttribute("name"));
+    NodeList testCases = suite.getElementsByTagName("testcase");
+    assertEquals(2, testCases.getLength());
+
+    Element first = (Element) testCases.item(0);
+    assertEquals("rule1", first.getAttribute("classname"));
+    assertEquals("<something> & \uFFFD", first.getAttribute("name"));
+    Element failure = (Element) first.getElementsByTagName("failure").item(0);
+    assertEquals("CODE_SMELL", failure.getAttribute("type"));
+    assertEquals("INFO: <something> & \uFFFD", failure.getAttribute("message"));
+    assertEquals("adapter.xml", failure.getTextContent());
+
+    failure = (Element) ((Element) testCases.item(1)).getElementsByTagName("failure").item(0);
+    assertEquals("adapter.xml:3", failure.getTextContent());
+  }
+
+  @Test
+  void writeBuffered() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    AtomicInteger writes = new AtomicInteger();
+    OutputStream out = new OutputStream() {
+      @Override
+      public void write(int b) {
+        writes.incrementAndGet();
+        bytes.write(b);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+        writes.incrementAndGet();
+        bytes.write(b, off, len);
+      }
+
+      @Override
+      public void close() throws IOException {
+        bytes.close();
+      }
+    };
+    try (JUnitIssuesWriter writer = new JUnitIssuesWriter(out, "interlokVerify", false)) {
+      for (int i = 0; i < 1000; i++) {
+        writer.write(new Issue("interlokVerify", "rule" + i, Severity.INFO, Type.CODE_SMELL,
+            new Location("something " + i, "adapter.xml")));
+      }
+    }
+    assertTrue(writes.get() < 20, writes.get() + " writes for " + bytes.size() + " bytes");
+    assertEquals(1000, DocumentBuilderFactory.newInstance().newDocumentBuilder()
+        .parse(new ByteArrayInputStream(bytes.toByteArray())).getElementsByTagName("testcase").getLength());
+  }
+}
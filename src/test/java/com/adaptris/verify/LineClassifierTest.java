@@ -0,0 +1,120 @@
+package com.adaptris.verify;
+
+import com.adaptris.verify.report.sonar.Issue;
+import com.adaptris.verify.report.sonar.Location;
+import com.adaptris.verify.report.sonar.Severity;
+import com.adaptris.verify.report.sonar.Type;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LineClassifierTest {
+
+  private static final String REGEX_TYPES =
+      Arrays.stream(Type.values()).map(Object::toString).collect(Collectors.joining("|"));
+  private static final String REGEX_SEVERITIES =
+      Arrays.stream(Severity.values()).map(Object::toString).collect(Collectors.joining("|"));
+  private static final Pattern RULE_PATTERN = Pattern.compile("^(?<type>" + REGEX_TYPES + "),(?<severity>"
+      + REGEX_SEVERITIES + "),(?<message>(?<rule>[^:]+):.*)$");
+  private static final Pattern MESSAGE_PATTERN = Pattern.compile(
+      "^(?<type>" + REGEX_TYPES + "),(?<severity>" + REGEX_SEVERITIES + "),(?<message>.*)$");
+
+  private static final String[] LINES = {
+    "",
+    "CODE_SMELL,INFO,something",
+    "CODE_SMELL,INFO,Interlok Validation Error:something",
+    "BUG,BLOCKER,Some Rule:with: more: colons",
+    "VULNERABILITY,CRITICAL,:leading colon",
+    "CODE_SMELL,MAJOR,",
+    "CODE_SMELL,MINOR,trailing colon:",
+    "CODE_SMELL,INFO",
+    "CODE_SMELL,,message",
+    ",INFO,message",
+    "CODE_SMEL,INFO,message",
+    "CODE_SMELLS,INFO,message",
+    "BUG,INFOS,message",
+    "BUG,INF,message",
+    "INVALID,INFO,something2",
+    "bug,info,lower case",
+    " BUG,INFO,leading space",
+    "BUG,INFO,message,with,commas",
+    "BUG,INFO,rule\nspanning:lines",
+    "BUG,INFO,message\nspanning lines",
+    "BUG,INFO,rule:message\rspanning lines",
+    "BUG,INFO,\u0085",
+    "[PayloadFromMetadataService(set-payload)] is a payload-from-metadata-service; use payload-from-template instead.",
+    "CODE_SMELL,MAJOR,[PayloadFromMetadataService(set-payload)] is a payload-from-metadata-service; use payload-from-template instead."
+  };
+
+  @Test
+  void classifyMatchesRegularExpressions() {
+    CreateVerifyReport.ArgumentWrapper argumentWrapper =
+        new CreateVerifyReport.ArgumentWrapper("engineId", "rule", "./adapter.xml", "report.txt", "report.json");
+    LineClassifier classifier = new LineClassifier(argumentWrapper);
+    int count = 1;
+    for (String line : LINES) {
+      Optional<Issue> expected = regexIssue(argumentWrapper, line, count);
+      Optional<Issue> actual = classifier.classify(line, count);
+      assertEquals(expected.isPresent(), actual.isPresent(), line);
+      if (expected.isPresent()) {
+        assertIssueEquals(expected.get(), actual.get(), line);
+      }
+      count++;
+    }
+  }
+
+  @Test
+  void classifySharesInstances() {
+    CreateVerifyReport.ArgumentWrapper argumentWrapper =
+        new CreateVerifyReport.ArgumentWrapper("engineId", "rule", "./adapter.xml", "report.txt", "report.json");
+    LineClassifier classifier = new LineClassifier(argumentWrapper, true, null);
+    Issue rule1 = classifier.classify("BUG,MAJOR,Interlok Validation Error:broken", 1).get();
+    Issue rule2 = classifier.classify("BUG,MAJOR,Interlok Validation Error:broken", 2).get();
+    Issue rule3 = classifier.classify("BUG,MINOR,Interlok Validation Error:other", 3).get();
+    assertSame(rule1, rule2);
+    assertNotSame(rule1, rule3);
+    assertSame(rule1.getRuleId(), rule3.getRuleId());
+    Issue message1 = classifier.classify("CODE_SMELL,INFO,deprecated", 4).get();
+    Issue message2 = classifier.classify("CODE_SMELL,INFO,deprecated", 5).get();
+    assertEquals("rule4", message1.getRuleId());
+    assertEquals("rule5", message2.getRuleId());
+    assertSame(message1.getPrimaryLocation(), message2.getPrimaryLocation());
+    assertSame(rule1.getPrimaryLocation().getFilePath(), message1.getPrimaryLocation().getFilePath());
+    classifier.clearSharedInstances();
+    assertNotSame(rule1, classifier.classify("BUG,MAJOR,Interlok Validation Error:broken", 1).get());
+    assertNotSame(message1.getPrimaryLocation(), classifier.classify("CODE_SMELL,INFO,deprecated", 4).get().getPrimaryLocation());
+
+    LineClassifier streaming = new LineClassifier(argumentWrapper);
+    assertNotSame(streaming.classify("BUG,MAJOR,Rule:broken", 1).get(), streaming.classify("BUG,MAJOR,Rule:broken", 2).get());
+  }
+
+  private static void assertIssueEquals(Issue expected, Issue actual, String line) {
+    assertEquals(expected.getEngineId(), actual.getEngineId(), line);
+    assertEquals(expected.getRuleId(), actual.getRuleId(), line);
+    assertEquals(expected.getSeverity(), actual.getSeverity(), line);
+    assertEquals(expected.getType(), actual.getType(), line);
+    assertEquals(expected.getPrimaryLocation().getMessage(), actual.getPrimaryLocation().getMessage(), line);
+    assertEquals(expected.getPrimaryLocation().getFilePath(), actual.getPrimaryLocation().getFilePath(), line);
+  }
+
+  private static Optional<Issue> regexIssue(CreateVerifyReport.ArgumentWrapper argumentWrapper, String line, int count) {
+    Matcher ruleMatcher = RULE_PATTERN.matcher(line);
+    Matcher msgMatcher = MESSAGE_PATTERN.matcher(line);
+    if (ruleMatcher.matches()) {
+      return Optional.of(new Issue(argumentWrapper.getEngineId(), ruleMatcher.group("rule").replace(" ", "_").toLowerCase(),
+          Severity.valueOf(ruleMatcher.group("severity")), Type.valueOf(ruleMatcher.group("type")),
+          new Location(ruleMatcher.group("message"), argumentWrapper.getLocationFilePath())));
+    } else if (msgMatcher.matches()) {
+      return Optional.of(new Issue(argumentWrapper.getEngineId(), argumentWrapper.getRuleIdPrefix() + count,
+          Severity.valueOf(msgMatcher.group("severity")), Type.valueOf(msgMatcher.group("type")),
+          new Location(msgMatcher.group("message"), argumentWrapper.getLocationFilePath())));
+    }
+    return Optional.empty();
+  }
+}
@@ -0,0 +1,95 @@
+package com.adaptris.verify;
+
+import com.adaptris.verify.report.sonar.Issues;
+import com.adaptris.verify.report.sonar.TextRange;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocationIndexTest {
+
+  private static final String ADAPTER_XML = "<adapter>\n"
+      + "  <unique-id>MyAdapter</unique-id>\n"
+      + "  <channel-list>\n"
+      + "    <channel>\n"
+      + "      <unique-id>channel</unique-id>\n"
+      + "      <workflow-list>\n"
+      + "        <standard-workflow>\n"
+      + "          <unique-id>workflow</unique-id>\n"
+      + "          <service-collection class=\"service-list\">\n"
+      + "            <services>\n"
+      + "              <payload-from-metadata-service>\n"
+      + "                <unique-id>set-payload</unique-id>\n"
+      + "                <template>hello</template>\n"
+      + "              </payload-from-metadata-service>\n"
+      + "            </services>\n"
+      + "          </service-collection>\n"
+      + "        </standard-workflow>\n"
+      + "      </workflow-list>\n"
+      + "    </channel>\n"
+      + "  </channel-list>\n"
+      + "</adapter>\n";
+
+  @Test
+  void resolve() throws Exception {
+    File adapterXml = File.createTempFile(LocationIndexTest.class.getSimpleName(), ".xml");
+    try {
+      FileUtils.writeStringToFile(adapterXml, ADAPTER_XML, StandardCharsets.UTF_8);
+      LocationIndex index = LocationIndex.build(adapterXml.toPath());
+      assertEquals(4, index.size());
+      TextRange range = index.resolve("[PayloadFromMetadataService(set-payload)] is a payload-from-metadata-service");
+      assertEquals(11, range.getStartLine());
+      assertEquals(14, range.getEndLine());
+      assertEquals(7, index.resolve("Validation: [StandardWorkflow(workflow)] and [Channel(channel)]").getStartLine());
+      assertEquals(4, index.resolve("Validation: [Unknown(unknown)] and [Channel(channel)]").getStartLine());
+      assertEquals(1, index.resolve("[Adapter(MyAdapter)]").getStartLine());
+      assertNull(index.resolve("[PayloadFromMetadataService(unknown)] is a payload-from-metadata-service"));
+      assertNull(index.resolve("no component here"));
+      assertNull(index.resolve("[unterminated(set-payload"));
+    } finally {
+      adapterXml.delete();
+    }
+  }
+
+  @Test
+  void buildInvalidXml() throws Exception {
+    File adapterXml = File.createTempFile(LocationIndexTest.class.getSimpleName(), ".xml");
+    try {
+      FileUtils.writeStringToFile(adapterXml, "<adapter><unique-id>", StandardCharsets.UTF_8);
+      assertThrows(IOException.class, () -> LocationIndex.build(adapterXml.toPath()));
+    } finally {
+      adapterXml.delete();
+    }
+  }
+
+  @Test
+  void mainResolveLocations() throws Exception {
+    File adapterXml = File.createTempFile(LocationIndexTest.class.getSimpleName(), ".xml");
+    File reportFile = File.createTempFile(LocationIndexTest.class.getSimpleName(), ".txt");
+    File outputFile = File.createTempFile(LocationIndexTest.class.getSimpleName(), ".json");
+    try {
+      FileUtils.writeStringToFile(adapterXml, ADAPTER_XML, StandardCharsets.UTF_8);
+      FileUtils.writeStringToFile(reportFile,
+          "CODE_SMELL,MAJOR,[PayloadFromMetadataService(set-payload)] is a payload-from-metadata-service\n"
+          + "CODE_SMELL,MAJOR,something else", StandardCharsets.UTF_8);
+      CreateVerifyReport.main(new String[]{"-f", reportFile.getAbsolutePath(), "-o", outputFile.getAbsolutePath(),
+          "-l", adapterXml.getAbsolutePath(), "--resolveLocations"});
+      String json = FileUtils.readFileToString(outputFile, StandardCharsets.UTF_8);
+      Issues issues = new ObjectMapper().readValue(json, Issues.class);
+      assertEquals(11, issues.getIssues().get(0).getPrimaryLocation().getTextRange().getStartLine());
+      assertEquals(14, issues.getIssues().get(0).getPrimaryLocation().getTextRange().getEndLine());
+      assertNull(issues.getIssues().get(1).getPrimaryLocation().getTextRange());
+      assertEquals(1, json.split("textRange", -1).length - 1);
+    } finally {
+      adapterXml.delete();
+      reportFile.delete();
+      outputFile.delete();
+    }
+  }
+}
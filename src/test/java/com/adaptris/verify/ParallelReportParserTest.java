@@ -0,0 +1,73 @@
+package com.adaptris.verify;
+
+import com.adaptris.verify.report.sonar.Issue;
+import com.adaptris.verify.report.sonar.Issues;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelReportParserTest {
+
+  private static final String[] TERMINATORS = {"\n", "\r\n", "\r", "\u0085", "\u2028", "\u2029"};
+  private static final String[] LINES = {
+    "CODE_SMELL,INFO,something",
+    "BUG,MAJOR,Interlok Validation Error:something \u00e9\u4e2d",
+    "VULNERABILITY,BLOCKER,[PayloadFromMetadataService(set-payload)] is a payload-from-metadata-service",
+    "junk",
+    ""
+  };
+
+  @Test
+  void countLines() {
+    assertEquals(0, ParallelReportParser.countLines(bytes("")));
+    assertEquals(1, ParallelReportParser.countLines(bytes("one")));
+    assertEquals(1, ParallelReportParser.countLines(bytes("one\r\n")));
+    assertEquals(3, ParallelReportParser.countLines(bytes("one\r\rtwo")));
+    assertEquals(4, ParallelReportParser.countLines(bytes("a\u0085b\u2028c\u2029d")));
+  }
+
+  @Test
+  void parseMatchesSequential() throws Exception {
+    CreateVerifyReport createVerifyReport = new CreateVerifyReport();
+    CreateVerifyReport.ArgumentWrapper argumentWrapper =
+        new CreateVerifyReport.ArgumentWrapper("engineId", "rule", "./adapter.xml", "report.txt", "report.json");
+    Random random = new Random(42);
+    StringBuilder report = new StringBuilder();
+    for (int i = 0; i < 2000; i++) {
+      report.append(LINES[random.nextInt(LINES.length)]).append(TERMINATORS[random.nextInt(TERMINATORS.length)]);
+    }
+    report.append("CODE_SMELL,INFO,no trailing newline");
+    File reportFile = File.createTempFile(ParallelReportParserTest.class.getSimpleName(), ".txt");
+    try {
+      Files.write(reportFile.toPath(), report.toString().getBytes(StandardCharsets.UTF_8));
+      Issues expected = createVerifyReport.createIssues(argumentWrapper, report.toString());
+      for (int chunkSize : new int[] {1, 7, 100, 4096, ParallelReportParser.DEFAULT_CHUNK_SIZE}) {
+        List<Issue> actual = new ArrayList<>();
+        new ParallelReportParser(4, chunkSize).parse(reportFile.toPath(), new LineClassifier(argumentWrapper), actual::add);
+        assertEquals(expected.getIssues().size(), actual.size());
+        for (int i = 0; i < actual.size(); i++) {
+          Issue e = expected.getIssues().get(i);
+          Issue a = actual.get(i);
+          assertEquals(e.getRuleId(), a.getRuleId());
+          assertEquals(e.getSeverity(), a.getSeverity());
+          assertEquals(e.getType(), a.getType());
+          assertEquals(e.getPrimaryLocation().getMessage(), a.getPrimaryLocation().getMessage());
+        }
+      }
+    } finally {
+      reportFile.delete();
+    }
+  }
+
+  private static ByteBuffer bytes(String s) {
+    return ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8));
+  }
+}
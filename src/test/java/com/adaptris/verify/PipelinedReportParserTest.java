@@ -0,0 +1,104 @@
+package com.adaptris.verify;
+
+import com.adaptris.verify.report.sonar.Issue;
+import com.adaptris.verify.report.sonar.Issues;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelinedReportParserTest {
+
+  private static final String[] LINES = {
+    "CODE_SMELL,INFO,something",
+    "BUG,MAJOR,Interlok Validation Error:something \u00e9\u4e2d",
+    "VULNERABILITY,BLOCKER,[PayloadFromMetadataService(set-payload)] is a payload-from-metadata-service",
+    "junk",
+    ""
+  };
+
+  private final CreateVerifyReport.ArgumentWrapper argumentWrapper =
+      new CreateVerifyReport.ArgumentWrapper("engineId", "rule", "./adapter.xml", "-", "report.json");
+
+  @Test
+  void parseMatchesSequential() throws Exception {
+    Random random = new Random(42);
+    StringBuilder report = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      report.append(LINES[random.nextInt(LINES.length)]).append('\n');
+    }
+    Issues expected = new CreateVerifyReport().createIssues(argumentWrapper, report.toString());
+    for (int workers : new int[] {1, 4}) {
+      for (int batchSize : new int[] {1, 7, PipelinedReportParser.DEFAULT_BATCH_SIZE}) {
+        List<Issue> actual = new ArrayList<>();
+        try (ReportLineReader reader = new ReportLineReader(new StringReader(report.toString()))) {
+          new PipelinedReportParser(workers, batchSize, null).parse(reader, new LineClassifier(argumentWrapper), actual::add);
+        }
+        assertEquals(expected.getIssues().size(), actual.size());
+        for (int i = 0; i < actual.size(); i++) {
+          assertEquals(expected.getIssues().get(i).getRuleId(), actual.get(i).getRuleId());
+          assertEquals(expected.getIssues().get(i).getPrimaryLocation().getMessage(),
+              actual.get(i).getPrimaryLocation().getMessage());
+        }
+      }
+    }
+  }
+
+  @Test
+  void readFailure() throws Exception {
+    Reader failing = new Reader() {
+      private final Reader lines = new StringReader("CODE_SMELL,INFO,one\nCODE_SMELL,INFO,two\n");
+
+      @Override
+      public int read(char[] buffer, int offset, int length) throws IOException {
+        int read = lines.read(buffer, offset, length);
+        if (read < 0) {
+          throw new IOException("disk on fire");
+        }
+        return read;
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    List<Issue> actual = new ArrayList<>();
+    try (ReportLineReader reader = new ReportLineReader(failing)) {
+      IOException e = assertThrows(IOException.class, () -> new PipelinedReportParser(2, 1, null)
+          .parse(reader, new LineClassifier(argumentWrapper), actual::add));
+      assertEquals("disk on fire", e.getMessage());
+    }
+    // Everything read before the failure was still handed on.
+    assertEquals(2, actual.size());
+  }
+
+  @Test
+  void stopsWhenComplete() throws Exception {
+    StringBuilder report = new StringBuilder();
+    for (int i = 0; i < 100_000; i++) {
+      report.append("CODE_SMELL,INFO,something\n");
+    }
+    List<Issue> actual = new ArrayList<>();
+    try (ReportLineReader reader = new ReportLineReader(new StringReader(report.toString()))) {
+      new PipelinedReportParser(2, 10, null).parse(reader, new LineClassifier(argumentWrapper),
+          new CreateVerifyReport.IssueHandler() {
+            @Override
+            public void handle(Issue issue) {
+              actual.add(issue);
+            }
+
+            @Override
+            public boolean isComplete() {
+              return actual.size() == 15;
+            }
+          });
+    }
+    assertEquals(15, actual.size());
+  }
+}
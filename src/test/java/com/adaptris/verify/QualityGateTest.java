@@ -0,0 +1,108 @@
+package com.adaptris.verify;
+
+import com.adaptris.verify.report.sonar.Issue;
+import com.adaptris.verify.report.sonar.Severity;
+import com.adaptris.verify.report.sonar.Type;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QualityGateTest {
+
+  @Test
+  void thresholds() {
+    QualityGate gate = new QualityGate("BLOCKER:1, CRITICAL:2,BUG:3", false);
+    gate.count(issue(Severity.CRITICAL, Type.BUG));
+    assertFalse(gate.isFailed());
+    gate.count(issue(Severity.MAJOR, Type.BUG));
+    assertFalse(gate.isFailed());
+    gate.count(issue(Severity.CRITICAL, Type.CODE_SMELL));
+    assertTrue(gate.isFailed());
+    assertEquals("CRITICAL: 2 (threshold 2)", gate.describe());
+    gate.count(issue(Severity.BLOCKER, Type.BUG));
+    assertEquals("BLOCKER: 1 (threshold 1), CRITICAL: 2 (threshold 2), BUG: 3 (threshold 3)", gate.describe());
+  }
+
+  @Test
+  void invalidThresholds() {
+    assertThrows(IllegalArgumentException.class, () -> new QualityGate("BLOCKER", false));
+    assertThrows(IllegalArgumentException.class, () -> new QualityGate("BLOCKER:x", false));
+    assertThrows(IllegalArgumentException.class, () -> new QualityGate("BLOCKER:0", false));
+    assertThrows(IllegalArgumentException.class, () -> new QualityGate("URGENT:1", false));
+    assertThrows(IllegalArgumentException.class, () -> new QualityGate("", false));
+  }
+
+  @Test
+  void counting() throws Exception {
+    List<Issue> written = new ArrayList<>();
+    QualityGate gate = new QualityGate("MAJOR:1", false);
+    IssueSink sink = gate.counting(sink(written));
+    sink.write(issue(Severity.MAJOR, Type.BUG));
+    sink.write(issue(Severity.MAJOR, Type.BUG));
+    assertTrue(gate.isFailed());
+    // Keeps going unless it stops when failed.
+    assertFalse(sink.isComplete());
+    assertEquals(2, written.size());
+    QualityGate stopping = new QualityGate("MAJOR:1", true);
+    IssueSink stoppingSink = stopping.counting(sink(written));
+    assertFalse(stoppingSink.isComplete());
+    stoppingSink.write(issue(Severity.MAJOR, Type.BUG));
+    assertTrue(stoppingSink.isComplete());
+  }
+
+  @Test
+  void stopsReadingWhenFailed() throws Exception {
+    StringBuilder report = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      report.append(i % 10 == 9 ? "BUG,BLOCKER,broken " : "CODE_SMELL,INFO,something ").append(i).append('\n');
+    }
+    CreateVerifyReport createVerifyReport = new CreateVerifyReport();
+    CreateVerifyReport.ArgumentWrapper argumentWrapper = createVerifyReport.parseArguments(
+        new String[]{"-f", "-", "--failOn", "BLOCKER:2", "--gateOnly"});
+    QualityGate gate = new QualityGate(argumentWrapper.getFailOn(), true);
+    List<Issue> written = new ArrayList<>();
+    IssueSink sink = gate.counting(sink(written));
+    try (ReportLineReader reader = new ReportLineReader(new StringReader(report.toString()))) {
+      createVerifyReport.createIssues(createVerifyReport.createClassifier(argumentWrapper, false), reader,
+          new CreateVerifyReport.IssueHandler() {
+            @Override
+            public void handle(Issue issue) throws IOException {
+              sink.write(issue);
+            }
+
+            @Override
+            public boolean isComplete() {
+              return sink.isComplete();
+            }
+          });
+    }
+    assertTrue(gate.isFailed());
+    // The second blocker is on line 20.
+    assertEquals(20, written.size());
+  }
+
+  private static Issue issue(Severity severity, Type type) {
+    Issue issue = new Issue();
+    issue.setSeverity(severity);
+    issue.setType(type);
+    return issue;
+  }
+
+  private static IssueSink sink(List<Issue> written) {
+    return new IssueSink() {
+      @Override
+      public void write(Issue issue) {
+        written.add(issue);
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+  }
+}
@@ -0,0 +1,66 @@
+package com.adaptris.verify;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportLineReaderTest {
+
+  @Test
+  void readLinesLikeScanner() throws Exception {
+    String[] inputs = {
+      "",
+      "one",
+      "one\n",
+      "one\ntwo",
+      "one\r\ntwo\r\n",
+      "one\rtwo\r",
+      "\n\n\n",
+      "\r\n\r\n",
+      "\r\r\n",
+      "one\u2028two\u2029three\u0085four",
+      "a long line that is longer than the buffer\r\nand another one\n"
+    };
+    for (String input : inputs) {
+      for (int bufferSize : new int[] {1, 2, 3, 8192}) {
+        assertEquals(scannerLines(input), readerLines(input, bufferSize), "input [" + input + "] buffer " + bufferSize);
+      }
+    }
+  }
+
+  @Test
+  void readAfterEndOfStream() throws Exception {
+    try (ReportLineReader reader = new ReportLineReader(new StringReader("one"))) {
+      assertEquals("one", reader.readLine());
+      assertNull(reader.readLine());
+      assertNull(reader.readLine());
+    }
+  }
+
+  private List<String> scannerLines(String input) {
+    List<String> result = new ArrayList<>();
+    try (Scanner scanner = new Scanner(input)) {
+      while (scanner.hasNextLine()) {
+        result.add(scanner.nextLine());
+      }
+    }
+    return result;
+  }
+
+  private List<String> readerLines(String input, int bufferSize) throws IOException {
+    List<String> result = new ArrayList<>();
+    try (ReportLineReader reader = new ReportLineReader(new StringReader(input), bufferSize)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        result.add(line);
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,168 @@
+package com.adaptris.verify;
+
+import com.adaptris.verify.report.sonar.Issue;
+import com.adaptris.verify.report.sonar.Issues;
+import org.apache.commons.cli.ParseException;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportWatcherTest {
+
+  private static final CreateVerifyReport.ArgumentWrapper ARGUMENTS =
+      new CreateVerifyReport.ArgumentWrapper("engineId", "rule", "./adapter.xml", "report.txt", "report.json");
+
+  @Test
+  void updateReadsOnlyCompleteAppendedLines() throws Exception {
+    File reportFile = File.createTempFile(ReportWatcherTest.class.getSimpleName(), ".txt");
+    try {
+      List<Issue> seen = new ArrayList<>();
+      ReportWatcher watcher = new ReportWatcher(reportFile.toPath(), new LineClassifier(ARGUMENTS, true, null),
+          issues -> {
+            seen.clear();
+            seen.addAll(issues);
+          });
+      assertTrue(watcher.update());
+      assertEquals(0, seen.size());
+      assertFalse(watcher.update());
+
+      append(reportFile, "CODE_SMELL,INFO,one\r\nnoise\nBUG,MAJOR,Interlok Validation Error:two\nCODE_SMELL,IN");
+      assertTrue(watcher.update());
+      assertEquals(2, seen.size());
+      assertEquals(3, watcher.getLines());
+      assertFalse(watcher.update());
+
+      append(reportFile, "FO,three\r");
+      assertFalse(watcher.update());
+      append(reportFile, "\nCODE_SMELL,INFO,four\n");
+      assertTrue(watcher.update());
+      assertEquals(reportFile.length(), watcher.getOffset());
+      assertRuleIds(new String(Files.readAllBytes(reportFile.toPath()), StandardCharsets.UTF_8), seen);
+      assertEquals("rule4", seen.get(2).getRuleId());
+      assertEquals("rule5", seen.get(3).getRuleId());
+      Issue beforeTruncation = seen.get(1);
+
+      Files.write(reportFile.toPath(), "CODE_SMELL,INFO,truncated\nBUG,MAJOR,Interlok Validation Error:two\n"
+          .getBytes(StandardCharsets.UTF_8));
+      assertTrue(watcher.update());
+      assertEquals(2, seen.size());
+      assertEquals("rule1", seen.get(0).getRuleId());
+      // Nothing is shared with the issues from before the truncation.
+      assertNotSame(beforeTruncation, seen.get(1));
+    } finally {
+      reportFile.delete();
+    }
+  }
+
+  @Test
+  void updateWithMissingReport() throws Exception {
+    File reportFile = File.createTempFile(ReportWatcherTest.class.getSimpleName(), ".txt");
+    reportFile.delete();
+    ReportWatcher watcher = new ReportWatcher(reportFile.toPath(), new LineClassifier(ARGUMENTS), issues -> fail());
+    assertFalse(watcher.update());
+  }
+
+  @Test
+  void updateWithCompressedReport() throws Exception {
+    File reportFile = File.createTempFile(ReportWatcherTest.class.getSimpleName(), ".txt.gz");
+    reportFile.delete();
+    try {
+      ReportWatcher watcher = new ReportWatcher(reportFile.toPath(), new LineClassifier(ARGUMENTS), issues -> fail());
+      // Not there yet is not an error.
+      assertFalse(watcher.update());
+      try (OutputStream out = new GZIPOutputStream(new FileOutputStream(reportFile))) {
+        out.write("CODE_SMELL,INFO,one\n".getBytes(StandardCharsets.UTF_8));
+      }
+      IOException e = assertThrows(IOException.class, watcher::update);
+      assertTrue(e.getMessage().contains("compressed"));
+    } finally {
+      reportFile.delete();
+    }
+  }
+
+  @Test
+  void watch() throws Exception {
+    File tmpDir = Files.createTempDirectory(ReportWatcherTest.class.getSimpleName()).toFile();
+    File reportFile = new File(tmpDir, "report.txt");
+    File outputFile = new File(tmpDir, "out.json");
+    Files.write(reportFile.toPath(), "CODE_SMELL,INFO,one\n".getBytes(StandardCharsets.UTF_8));
+    CreateVerifyReport createVerifyReport = new CreateVerifyReport();
+    CreateVerifyReport.ArgumentWrapper argumentWrapper = createVerifyReport.parseArguments(
+        new String[]{"-f", reportFile.getAbsolutePath(), "-o", outputFile.getAbsolutePath(), "--watch", "20"});
+    AtomicInteger latest = new AtomicInteger();
+    Thread watching = new Thread(() -> {
+      try {
+        new ReportWatcher(reportFile.toPath(), createVerifyReport.createClassifier(argumentWrapper, true), issues -> {
+          createVerifyReport.writeOutputs(argumentWrapper, issues);
+          latest.set(issues.size());
+        }).watch(argumentWrapper.getWatchPollMillis());
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+    watching.start();
+    try {
+      waitFor(latest, 1);
+      append(reportFile, "BUG,MAJOR,Interlok Validation Error:two\n");
+      waitFor(latest, 2);
+    } finally {
+      watching.interrupt();
+      watching.join(TimeUnit.SECONDS.toMillis(10));
+    }
+    assertFalse(watching.isAlive());
+    File expected = new File(tmpDir, "expected.json");
+    CreateVerifyReport.main(new String[]{"-f", reportFile.getAbsolutePath(), "-o", expected.getAbsolutePath()});
+    assertArrayEquals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(outputFile.toPath()));
+    for (File file : tmpDir.listFiles()) {
+      file.delete();
+    }
+    tmpDir.delete();
+  }
+
+  @Test
+  void parseArgumentsWatch() throws Exception {
+    CreateVerifyReport createVerifyReport = new CreateVerifyReport();
+    assertEquals(ReportWatcher.DEFAULT_POLL_MILLIS, createVerifyReport.parseArguments(
+        new String[]{"-f", "./file.txt", "-o", "./out.json", "-w"}).getWatchPollMillis());
+    assertFalse(createVerifyReport.parseArguments(new String[]{"-f", "./file.txt", "-o", "./out.json"}).isWatch());
+    assertThrows(ParseException.class, () -> createVerifyReport.parseArguments(
+        new String[]{"-f", "-", "-o", "./out.json", "--watch"}));
+    assertThrows(ParseException.class, () -> createVerifyReport.parseArguments(
+        new String[]{"-f", "./file.txt", "-o", "./out.json", "--watch", "0"}));
+    assertThrows(ParseException.class, () -> createVerifyReport.parseArguments(
+        new String[]{"-f", "./file.txt", "-o", "./out.json", "--watch", "-5"}));
+  }
+
+  private static void assertRuleIds(String report, List<Issue> actual) {
+    Issues expected = new CreateVerifyReport().createIssues(ARGUMENTS, report);
+    assertEquals(expected.getIssues().size(), actual.size());
+    for (int i = 0; i < actual.size(); i++) {
+      assertEquals(expected.getIssues().get(i).getRuleId(), actual.get(i).getRuleId());
+    }
+  }
+
+  private static void waitFor(AtomicInteger latest, int issues) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+    while (latest.get() != issues && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(issues, latest.get());
+  }
+
+  private static void append(File file, String text) throws Exception {
+    Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+  }
+}
@@ -0,0 +1,136 @@
+package com.adaptris.verify;
+
+import com.adaptris.verify.report.sonar.Issues;
+import com.adaptris.verify.report.sonar.Severity;
+import com.adaptris.verify.report.sonar.Type;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleCatalogueTest {
+
+  private static final String CATALOGUE = "{\"rules\": [\n"
+      + "  {\"id\": \"deprecated_pfm\", \"contains\": \"is a payload-from-metadata-service\", \"severity\": \"MINOR\"},\n"
+      + "  {\"id\": \"deprecated\", \"pattern\": \"(?i).*(is )?deprecated.*\", \"type\": \"VULNERABILITY\"},\n"
+      + "  {\"id\": \"validation\", \"contains\": \"Validation Error\"},\n"
+      + "  {\"id\": \"service\", \"pattern\": \"\\\\[(\\\\w+)Service.*\"}\n"
+      + "]}";
+
+  @Test
+  void lowestMatch() {
+    Random random = new Random(42);
+    for (int round = 0; round < 200; round++) {
+      List<String> substrings = new ArrayList<>();
+      for (int i = 0; i < 1 + random.nextInt(8); i++) {
+        substrings.add(randomText(random, 1 + random.nextInt(4)));
+      }
+      AhoCorasickMatcher matcher = new AhoCorasickMatcher(substrings);
+      String text = randomText(random, random.nextInt(30));
+      int expected = AhoCorasickMatcher.NO_MATCH;
+      for (int i = substrings.size() - 1; i >= 0; i--) {
+        if (text.contains(substrings.get(i))) {
+          expected = i;
+        }
+      }
+      assertEquals(expected, matcher.lowestMatch(text), substrings + " in " + text);
+    }
+  }
+
+  @Test
+  void match() throws Exception {
+    RuleCatalogue catalogue = load(CATALOGUE);
+    assertEquals(4, catalogue.size());
+    RuleCatalogue.Rule rule = catalogue.match("[PayloadFromMetadataService(x)] is a payload-from-metadata-service; use y");
+    assertEquals("deprecated_pfm", rule.getId());
+    assertEquals(Severity.MINOR, rule.getSeverity());
+    assertNull(rule.getType());
+    // The pattern comes first in the catalogue.
+    assertEquals("deprecated", catalogue.match("Validation Error: X is Deprecated").getId());
+    assertEquals(Type.VULNERABILITY, catalogue.match("Validation Error: X is Deprecated").getType());
+    assertEquals("validation", catalogue.match("Interlok Validation Error: broken").getId());
+    // Groups inside the patterns do not confuse which pattern matched.
+    assertEquals("service", catalogue.match("[AddMetadataService(x)] is fine").getId());
+    assertNull(catalogue.match("something else"));
+  }
+
+  @Test
+  void matchBackreferencesAndNamedGroups() throws Exception {
+    RuleCatalogue catalogue = load("{\"rules\": [\n"
+        + "  {\"id\": \"plain\", \"pattern\": \"plain.*\"},\n"
+        + "  {\"id\": \"repeated\", \"pattern\": \"(\\\\w+) \\\\1\"},\n"
+        + "  {\"id\": \"named\", \"pattern\": \"(?<word>x+)-\\\\k<word>\"},\n"
+        + "  {\"id\": \"alsoNamed\", \"pattern\": \"(?<word>y+)!\"},\n"
+        + "  {\"id\": \"quoted\", \"pattern\": \"\\\\Q(a)\"},\n"
+        + "  {\"id\": \"last\", \"pattern\": \"z.*\"}\n"
+        + "]}");
+    assertEquals("plain", catalogue.match("plain text").getId());
+    // Each backreference still refers to its own pattern's group.
+    assertEquals("repeated", catalogue.match("again again").getId());
+    assertNull(catalogue.match("again gain"));
+    assertEquals("named", catalogue.match("xx-xx").getId());
+    assertNull(catalogue.match("xx-x"));
+    assertEquals("alsoNamed", catalogue.match("yyy!").getId());
+    assertEquals("quoted", catalogue.match("(a)").getId());
+    assertEquals("last", catalogue.match("zz").getId());
+  }
+
+  @Test
+  void loadInvalid() {
+    assertThrows(IOException.class, () -> load("{\"rules\": [{\"id\": \"x\"}]}"));
+    assertThrows(IOException.class, () -> load("{\"rules\": [{\"contains\": \"x\"}]}"));
+    assertThrows(IOException.class, () -> load("{\"rules\": [{\"id\": \"x\", \"pattern\": \"(\"}]}"));
+    assertThrows(IOException.class, () -> load("{\"rules\": [{\"id\": \"x\", \"contains\": \"x\", \"severity\": \"HIGH\"}]}"));
+    assertThrows(IOException.class, () -> load("[]"));
+  }
+
+  @Test
+  void createIssuesWithCatalogue() throws Exception {
+    File catalogueFile = File.createTempFile(RuleCatalogueTest.class.getSimpleName(), ".json");
+    try {
+      Files.write(catalogueFile.toPath(), CATALOGUE.getBytes(StandardCharsets.UTF_8));
+      CreateVerifyReport createVerifyReport = new CreateVerifyReport();
+      CreateVerifyReport.ArgumentWrapper argumentWrapper = createVerifyReport.parseArguments(
+          new String[]{"-f", "report.txt", "-o", "out.json", "--ruleCatalogue", catalogueFile.getAbsolutePath()});
+      Issues issues = createVerifyReport.createIssues(argumentWrapper, String.join("\n", Arrays.asList(
+          "CODE_SMELL,INFO,[PayloadFromMetadataService(a)] is a payload-from-metadata-service; use b",
+          "BUG,MAJOR,Interlok Validation Error:broken",
+          "CODE_SMELL,INFO,[PayloadFromMetadataService(c)] is a payload-from-metadata-service; use d",
+          "CODE_SMELL,INFO,unknown")));
+      assertEquals("deprecated_pfm", issues.getIssues().get(0).getRuleId());
+      assertEquals(Severity.MINOR, issues.getIssues().get(0).getSeverity());
+      assertEquals("validation", issues.getIssues().get(1).getRuleId());
+      assertEquals(Severity.MAJOR, issues.getIssues().get(1).getSeverity());
+      assertEquals("deprecated_pfm", issues.getIssues().get(2).getRuleId());
+      assertEquals("rule4", issues.getIssues().get(3).getRuleId());
+    } finally {
+      catalogueFile.delete();
+    }
+  }
+
+  private static RuleCatalogue load(String json) throws IOException {
+    File catalogueFile = File.createTempFile(RuleCatalogueTest.class.getSimpleName(), ".json");
+    try {
+      Files.write(catalogueFile.toPath(), json.getBytes(StandardCharsets.UTF_8));
+      return RuleCatalogue.load(catalogueFile.toPath());
+    } finally {
+      catalogueFile.delete();
+    }
+  }
+
+  private static String randomText(Random random, int length) {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      text.append("abc".charAt(random.nextInt(3)));
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,56 @@
+package com.adaptris.verify;
+
+import com.adaptris.verify.report.sonar.Issue;
+import com.adaptris.verify.report.sonar.Location;
+import com.adaptris.verify.report.sonar.Severity;
+import com.adaptris.verify.report.sonar.TextRange;
+import com.adaptris.verify.report.sonar.Type;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SarifIssuesWriterTest {
+
+  @Test
+  void write() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (SarifIssuesWriter writer = new SarifIssuesWriter(new JsonFactory(), out, "interlokVerify", true, false)) {
+      writer.write(new Issue("interlokVerify", "rule1", Severity.INFO, Type.CODE_SMELL,
+          new Location("something", "./src/main/interlok/config/adapter.xml")));
+      writer.write(new Issue("interlokVerify", "interlok_validation_error", Severity.BLOCKER, Type.BUG,
+          new Location("Interlok Validation Error:broken", ".\\adapter.xml", new TextRange(3, 12))));
+    }
+    JsonNode log = new ObjectMapper().readTree(out.toByteArray());
+    assertEquals("2.1.0", log.get("version").asText());
+    JsonNode run = log.get("runs").get(0);
+    assertEquals("interlokVerify", run.get("tool").get("driver").get("name").asText());
+    JsonNode results = run.get("results");
+    assertEquals(2, results.size());
+
+    assertEquals("rule1", results.get(0).get("ruleId").asText());
+    assertEquals("note", results.get(0).get("level").asText());
+    assertEquals("something", results.get(0).get("message").get("text").asText());
+    JsonNode physical = results.get(0).get("locations").get(0).get("physicalLocation");
+    assertEquals("src/main/interlok/config/adapter.xml", physical.get("artifactLocation").get("uri").asText());
+    assertNull(physical.get("region"));
+    assertEquals("CODE_SMELL", results.get(0).get("properties").get("type").asText());
+
+    assertEquals("error", results.get(1).get("level").asText());
+    physical = results.get(1).get("locations").get(0).get("physicalLocation");
+    assertEquals("adapter.xml", physical.get("artifactLocation").get("uri").asText());
+    assertEquals(3, physical.get("region").get("startLine").asInt());
+    assertEquals(12, physical.get("region").get("endLine").asInt());
+  }
+
+  @Test
+  void level() {
+    assertEquals("error", SarifIssuesWriter.level(Severity.CRITICAL));
+    assertEquals("warning", SarifIssuesWriter.level(Severity.MAJOR));
+    assertEquals("note", SarifIssuesWriter.level(Severity.MINOR));
+  }
+}
@@ -0,0 +1,57 @@
+package com.adaptris.verify;
+
+import com.adaptris.verify.report.sonar.Issue;
+import com.adaptris.verify.report.sonar.Issues;
+import com.adaptris.verify.report.sonar.Location;
+import com.adaptris.verify.report.sonar.Severity;
+import com.adaptris.verify.report.sonar.TextRange;
+import com.adaptris.verify.report.sonar.Type;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SonarIssuesWriterTest {
+
+  private static final Issues ISSUES = new Issues(Arrays.asList(
+      new Issue("interlokVerify", "rule1", Severity.INFO, Type.CODE_SMELL, new Location("something", "adapter.xml")),
+      new Issue("interlokVerify", "interlok_validation_error", Severity.BLOCKER, Type.BUG,
+          new Location("Interlok Validation Error:\"quoted\" é", "adapter.xml", new TextRange(3, 12))),
+      new Issue("interlokVerify", null, Severity.MAJOR, null, new Location(null, "adapter.xml", new TextRange(5, null))),
+      new Issue(null, "rule4", null, Type.VULNERABILITY, null),
+      new Issue("interlokVerify", "rule5", Severity.MINOR, Type.BUG, new Location("twice", "adapter.xml"), 10)));
+
+  @Test
+  void prettyMatchesObjectMapper() throws Exception {
+    assertArrayEquals(mapper().writerWithDefaultPrettyPrinter().writeValueAsBytes(ISSUES), write(ISSUES, true));
+  }
+
+  @Test
+  void compactMatchesObjectMapper() throws Exception {
+    assertArrayEquals(mapper().writer().writeValueAsBytes(ISSUES), write(ISSUES, false));
+    assertArrayEquals(mapper().writer().writeValueAsBytes(new Issues(Arrays.asList())),
+        write(new Issues(Arrays.asList()), false));
+  }
+
+  private static byte[] write(Issues issues, boolean pretty) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (SonarIssuesWriter writer = new SonarIssuesWriter(new JsonFactory(), out, pretty, false)) {
+      for (Issue issue : issues.getIssues()) {
+        writer.write(issue);
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private static ObjectMapper mapper() {
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    return mapper;
+  }
+}
@@ -0,0 +1,124 @@
+package com.adaptris.verify;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import com.adaptris.verify.report.sonar.Severity;
+import com.adaptris.verify.report.sonar.Type;
+
+/**
+ * Generates interlokVerify style reports for benchmarks and soak tests; the mix of line kinds is given as relative
+ * weights.
+ * <p>
+ * Rule lines have a {@code rule:} prefix, message lines are payload-from-metadata style messages, deprecation lines
+ * name a deprecated component, and junk is the log noise that interlokVerify mixes into the report (log lines, stack
+ * traces and blank lines).
+ * </p>
+ */
+public class SyntheticReport {
+
+  private static final Type[] TYPES = Type.values();
+  private static final Severity[] SEVERITIES = Severity.values();
+  private static final String[] RULES = {
+    "Interlok Validation Error", "Interlok Deprecation Warning", "Interlok Config Warning"
+  };
+  private static final String[] DEPRECATED = {
+    "XpathMetadataService", "JdbcDataQueryService", "StandaloneProducer", "XmlTransformService"
+  };
+  private static final String[] JUNK = {
+    "INFO [main] AdapterRegistry - Adapter(adapter-%d) Created",
+    "WARN [main] ChannelManager - Channel(channel-%d) has no workflows",
+    "\tat com.adaptris.core.runtime.AdapterManager.requestInit(AdapterManager.java:%d)",
+    ""
+  };
+
+  private final int ruleWeight;
+  private final int messageWeight;
+  private final int junkWeight;
+  private final int deprecationWeight;
+  private final Random random;
+
+  public SyntheticReport(int ruleWeight, int messageWeight, int junkWeight, long seed) {
+    this(ruleWeight, messageWeight, junkWeight, 0, seed);
+  }
+
+  public SyntheticReport(int ruleWeight, int messageWeight, int junkWeight, int deprecationWeight, long seed) {
+    this.ruleWeight = ruleWeight;
+    this.messageWeight = messageWeight;
+    this.junkWeight = junkWeight;
+    this.deprecationWeight = deprecationWeight;
+    random = new Random(seed);
+  }
+
+  /**
+   * Parse a {@code rule:message:junk[:deprecation]} weight mix such as {@code 34:33:33}.
+   */
+  public static SyntheticReport mix(String mix, long seed) {
+    String[] weights = mix.split(":");
+    return new SyntheticReport(Integer.parseInt(weights[0]), Integer.parseInt(weights[1]),
+        Integer.parseInt(weights[2]), weights.length > 3 ? Integer.parseInt(weights[3]) : 0, seed);
+  }
+
+  public String lines(int count) {
+    StringBuilder report = new StringBuilder(count * 64);
+    for (int i = 0; i < count; i++) {
+      report.append(nextLine()).append('\n');
+    }
+    return report.toString();
+  }
+
+  public void write(Path file, long count) throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      for (long i = 0; i < count; i++) {
+        writer.write(nextLine());
+        writer.write('\n');
+      }
+    }
+  }
+
+  /**
+   * Write lines until the report is at least {@code bytes} long, for reports sized like real ones.
+   *
+   * @return the number of lines written.
+   */
+  public long writeBytes(Path file, long bytes) throws IOException {
+    long written = 0;
+    long lines = 0;
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      while (written < bytes) {
+        String line = nextLine();
+        writer.write(line);
+        writer.write('\n');
+        // Every line generated is ASCII.
+        written += line.length() + 1;
+        lines++;
+      }
+    }
+    return lines;
+  }
+
+  public String nextLine() {
+    int pick = random.nextInt(Math.max(1, ruleWeight + messageWeight + junkWeight + deprecationWeight));
+    int id = random.nextInt(1000);
+    if (pick < ruleWeight) {
+      return prefix() + RULES[random.nextInt(RULES.length)] + ":Unable to validate service(service-" + id + ")";
+    }
+    if (pick < ruleWeight + messageWeight) {
+      return prefix() + "[PayloadFromMetadataService(set-payload-" + id
+          + ")] is a payload-from-metadata-service; use payload-from-template or metadata-to-payload instead.";
+    }
+    if (pick < ruleWeight + messageWeight + junkWeight) {
+      return String.format(JUNK[random.nextInt(JUNK.length)], id);
+    }
+    String component = DEPRECATED[random.nextInt(DEPRECATED.length)];
+    return prefix() + "[" + component + "(" + component.toLowerCase() + "-" + id + ")] is deprecated and will be "
+        + "removed in a future release";
+  }
+
+  private String prefix() {
+    return TYPES[random.nextInt(TYPES.length)] + "," + SEVERITIES[random.nextInt(SEVERITIES.length)] + ",";
+  }
+}